@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.support.v4.util.LruCache;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the decoded background bitmaps of {@link Style}s, so {@link Crouton}s with the same background don't decode
+ * it again. Backgrounds are decoded on the {@link BackgroundExecutor} while their {@link Crouton}s are queued.
+ * <p/>
+ * A stretched background is decoded no larger than needed to cover the crouton view. It keeps its intrinsic size
+ * though, so it still affects the size of the view as before. A tiled background is decoded at full resolution and
+ * shares one {@link BitmapShader} across all its views.
+ */
+final class BackgroundBitmapCache {
+  /** The share of the maximum heap that decoded backgrounds may take up. */
+  private static final int MEMORY_SHARE = 32;
+
+  private static final LruCache<Key, Entry> cache =
+      new LruCache<Key, Entry>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / MEMORY_SHARE)) {
+        @Override
+        protected int sizeOf(Key key, Entry entry) {
+          return entry.bitmap.getRowBytes() * entry.bitmap.getHeight();
+        }
+      };
+
+  /** The backgrounds that are being decoded on the {@link BackgroundExecutor}. */
+  private static final Set<Key> decoding = new HashSet<Key>();
+
+  private BackgroundBitmapCache() {
+    /* no-op */
+  }
+
+  /**
+   * Starts decoding the background of a {@link Style} in the background unless it is cached already. Must be called
+   * from the main thread.
+   *
+   * @param resources
+   *   The {@link Resources} to decode the background with.
+   * @param style
+   *   The {@link Style} with a background drawable.
+   */
+  static void preload(final Resources resources, Style style) {
+    final Key key = new Key(resources, style);
+    if (null != cache.get(key)) {
+      return;
+    }
+    synchronized (decoding) {
+      if (!decoding.add(key)) {
+        return;
+      }
+    }
+    BackgroundExecutor.get().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (null == cache.get(key)) {
+            decode(resources, key);
+          }
+        } finally {
+          synchronized (decoding) {
+            decoding.remove(key);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Must be called from the main thread. Decodes the background right away if it has not been decoded in the
+   * background yet.
+   *
+   * @param resources
+   *   The {@link Resources} to decode the background with.
+   * @param style
+   *   The {@link Style} with a background drawable.
+   *
+   * @return A new {@link Drawable} for the background of the {@link Style} or <code>null</code> if it can't be
+   * decoded.
+   */
+  static Drawable getBackground(Resources resources, Style style) {
+    final Key key = new Key(resources, style);
+    Entry entry = cache.get(key);
+    if (null == entry) {
+      entry = decode(resources, key);
+      if (null == entry) {
+        return null;
+      }
+    }
+
+    if (!key.isTileEnabled) {
+      return new BitmapDrawable(resources, entry.bitmap);
+    }
+    if (null == entry.shader) {
+      entry.shader = new BitmapShader(entry.bitmap, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+    }
+    final DisplayMetrics displayMetrics = resources.getDisplayMetrics();
+    final ShapeDrawable drawable = new ShapeDrawable();
+    drawable.getPaint().setShader(entry.shader);
+    // Keep the minimum size a tiled BitmapDrawable would impose on the view.
+    drawable.setIntrinsicWidth(entry.bitmap.getScaledWidth(displayMetrics));
+    drawable.setIntrinsicHeight(entry.bitmap.getScaledHeight(displayMetrics));
+    return drawable;
+  }
+
+  private static Entry decode(Resources resources, Key key) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = getSampleSize(resources, key);
+    final Bitmap bitmap = BitmapFactory.decodeResource(resources, key.resId, options);
+    if (null == bitmap) {
+      return null;
+    }
+    if (options.inSampleSize > 1) {
+      // Drawn at the size of the full resolution bitmap. The sample size divides the density without remainder.
+      bitmap.setDensity(bitmap.getDensity() / options.inSampleSize);
+    }
+    final Entry entry = new Entry(bitmap);
+    cache.put(key, entry);
+    return entry;
+  }
+
+  /**
+   * @return The largest power of two to downsample the background by while still covering the crouton view, or 1 if
+   * the background is tiled. The height of a view that wraps its content isn't known before layout, so such
+   * backgrounds are downsampled by the width of the view alone. It divides the density the background is decoded
+   * for, so the downsampled bitmap keeps the intrinsic size of the full resolution one.
+   */
+  private static int getSampleSize(Resources resources, Key key) {
+    if (key.isTileEnabled || (key.width <= 0)) {
+      return 1;
+    }
+    final BitmapFactory.Options bounds = new BitmapFactory.Options();
+    bounds.inJustDecodeBounds = true;
+    bounds.inScaled = false;
+    BitmapFactory.decodeResource(resources, key.resId, bounds);
+    if ((bounds.outWidth <= 0) || (bounds.outHeight <= 0) || (TypedValue.DENSITY_NONE == bounds.inDensity)) {
+      // Without a density, the intrinsic size of a bitmap is its size in pixels.
+      return 1;
+    }
+
+    // The bitmap is scaled from the density of the resource to the display density while it is decoded.
+    float scale = 1.0f;
+    if ((bounds.inDensity > 0) && (bounds.inTargetDensity > 0)) {
+      scale = (float) bounds.inTargetDensity / bounds.inDensity;
+    }
+    final float width = bounds.outWidth * scale;
+    final float height = bounds.outHeight * scale;
+    int sampleSize = 1;
+    while ((width / (sampleSize * 2) >= key.width) && ((key.height <= 0) || (height / (sampleSize * 2) >= key.height))
+        && (key.densityDpi % (sampleSize * 2) == 0)) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  /** A decoded background. */
+  private static final class Entry {
+    final Bitmap bitmap;
+    /** Created on the main thread on first use. */
+    BitmapShader shader;
+
+    Entry(Bitmap bitmap) {
+      this.bitmap = bitmap;
+    }
+  }
+
+  /** Identifies a background by its resource, the way it is drawn and the display it is decoded for. */
+  private static final class Key {
+    final int resId;
+    final boolean isTileEnabled;
+    final int width;
+    final int height;
+    final int densityDpi;
+
+    Key(Resources resources, Style style) {
+      final ResolvedStyle resolvedStyle = ResolvedStyle.get(resources, style);
+      final DisplayMetrics displayMetrics = resources.getDisplayMetrics();
+      this.resId = style.backgroundDrawableResourceId;
+      this.isTileEnabled = style.isTileEnabled;
+      if (isTileEnabled) {
+        // Tiles are decoded at full resolution whatever the size of the view.
+        this.width = 0;
+        this.height = 0;
+      } else {
+        // A view matching its parent is at most as wide as the display.
+        this.width = (resolvedStyle.width > 0) ? resolvedStyle.width : displayMetrics.widthPixels;
+        // 0 if the view wraps its content.
+        this.height = Math.max(0, resolvedStyle.height);
+      }
+      this.densityDpi = displayMetrics.densityDpi;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return (resId == other.resId) && (isTileEnabled == other.isTileEnabled) && (width == other.width)
+          && (height == other.height) && (densityDpi == other.densityDpi);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = resId;
+      result = 31 * result + (isTileEnabled ? 1 : 0);
+      result = 31 * result + width;
+      result = 31 * result + height;
+      result = 31 * result + densityDpi;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the work that {@link Crouton}s can do ahead of their display, such as laying out their text, on a single
+ * low priority background thread, so it stays off the main thread.
+ * <p/>
+ * Tasks must not touch views that are attached to a window.
+ */
+final class BackgroundExecutor {
+  private static final String THREAD_NAME = "Crouton-Background";
+
+  private BackgroundExecutor() {
+    /* no-op */
+  }
+
+  /** @return The shared {@link Executor} for background work of {@link Crouton}s. */
+  static Executor get() {
+    return Holder.EXECUTOR;
+  }
+
+  /** Creates the background thread on first use only. */
+  private static final class Holder {
+    static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+}
@@ -38,6 +38,16 @@ public class Configuration {
   /** The default long display duration of a {@link Crouton}. */
   public static final int DURATION_LONG = 5000;
 
+  /** Priority for {@link Crouton}s that can wait behind all others. */
+  public static final int PRIORITY_LOW = -1;
+  /** The default priority of a {@link Crouton}. */
+  public static final int PRIORITY_NORMAL = 0;
+  /** Priority for {@link Crouton}s that should be displayed before all others, e.g. errors. */
+  public static final int PRIORITY_HIGH = 1;
+
+  /** Keep a queued {@link Crouton} until it is displayed, no matter how long that takes. */
+  public static final int TIME_TO_LIVE_INFINITE = -1;
+
   /** The default {@link Configuration} of a {@link Crouton}. */
   public static final Configuration DEFAULT;
 
@@ -51,11 +61,23 @@ public class Configuration {
   final int inAnimationResId;
   /** The resource id for the out animation. */
   final int outAnimationResId;
+  /** The priority of the {@link Crouton}. Higher values are displayed first. */
+  final int priority;
+  /** Whether equal {@link Crouton}s are merged instead of being queued one after another. */
+  final boolean isCollapseEnabled;
+  /** The key identifying equal {@link Crouton}s. <code>null</code> compares their text and {@link Style}. */
+  final String collapseKey;
+  /** The time in milliseconds after {@link Crouton#show()} after which the {@link Crouton} is no longer displayed. */
+  final int timeToLiveInMilliseconds;
 
   private Configuration(Builder builder) {
     this.durationInMilliseconds = builder.durationInMilliseconds;
     this.inAnimationResId = builder.inAnimationResId;
     this.outAnimationResId = builder.outAnimationResId;
+    this.priority = builder.priority;
+    this.isCollapseEnabled = builder.isCollapseEnabled;
+    this.collapseKey = builder.collapseKey;
+    this.timeToLiveInMilliseconds = builder.timeToLiveInMilliseconds;
   }
 
   /** Creates a {@link Builder} to build a {@link Configuration} upon. */
@@ -63,6 +85,10 @@ public class Configuration {
     private int durationInMilliseconds = DURATION_SHORT;
     private int inAnimationResId = 0;
     private int outAnimationResId = 0;
+    private int priority = PRIORITY_NORMAL;
+    private boolean isCollapseEnabled = false;
+    private String collapseKey = null;
+    private int timeToLiveInMilliseconds = TIME_TO_LIVE_INFINITE;
 
     /**
      * Set the durationInMilliseconds option of the {@link Crouton}.
@@ -109,6 +135,80 @@ public class Configuration {
       return this;
     }
 
+    /**
+     * Set the priority of the {@link Crouton}.
+     * <p/>
+     * Queued {@link Crouton}s are displayed in order of descending priority. A {@link Crouton} with a higher
+     * priority than the one currently displayed on the same target cuts the displayed one short.
+     *
+     * @param priority
+     *   The priority, e.g. {@link #PRIORITY_HIGH}.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setPriority(final int priority) {
+      this.priority = priority;
+
+      return this;
+    }
+
+    /**
+     * Set whether equal {@link Crouton}s are collapsed.
+     * <p/>
+     * A collapsed {@link Crouton} is not queued. Instead the equal {@link Crouton} that is already queued or
+     * displayed on the same target has its {@link Crouton#getRepeatCount() repeat count} incremented and, if it
+     * is displayed, its display duration restarted.
+     * <p/>
+     * Unless a collapse key is set, {@link Crouton}s are equal if they have the same text and {@link Style}.
+     *
+     * @param isCollapseEnabled
+     *   <code>true</code> if equal {@link Crouton}s should be collapsed, else <code>false</code>.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setCollapseEnabled(final boolean isCollapseEnabled) {
+      this.isCollapseEnabled = isCollapseEnabled;
+
+      return this;
+    }
+
+    /**
+     * Set the key that identifies equal {@link Crouton}s. This enables collapsing.
+     *
+     * @param collapseKey
+     *   The key identifying equal {@link Crouton}s or <code>null</code> to compare their text and {@link Style}.
+     *
+     * @return the {@link Builder}.
+     *
+     * @see #setCollapseEnabled(boolean)
+     */
+    public Builder setCollapseKey(final String collapseKey) {
+      this.collapseKey = collapseKey;
+      this.isCollapseEnabled = true;
+
+      return this;
+    }
+
+    /**
+     * Set the time to live of the {@link Crouton}.
+     * <p/>
+     * A {@link Crouton} that is still queued when its time to live has passed is dropped without being displayed.
+     * Its {@link LifecycleCallback#onRemoved()} is called nonetheless.
+     *
+     * @param timeToLive
+     *   The positive time in milliseconds after {@link Crouton#show()} or {@link #TIME_TO_LIVE_INFINITE}.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setTimeToLive(final int timeToLive) {
+      if ((timeToLive <= 0) && (TIME_TO_LIVE_INFINITE != timeToLive)) {
+        throw new IllegalArgumentException("The time to live has to be positive or TIME_TO_LIVE_INFINITE");
+      }
+      this.timeToLiveInMilliseconds = timeToLive;
+
+      return this;
+    }
+
     /**
      * Builds the {@link Configuration}.
      *
@@ -125,6 +225,10 @@ public class Configuration {
       "durationInMilliseconds=" + durationInMilliseconds +
       ", inAnimationResId=" + inAnimationResId +
       ", outAnimationResId=" + outAnimationResId +
+      ", priority=" + priority +
+      ", isCollapseEnabled=" + isCollapseEnabled +
+      ", collapseKey=" + collapseKey +
+      ", timeToLiveInMilliseconds=" + timeToLiveInMilliseconds +
       '}';
   }
 }
\ No newline at end of file
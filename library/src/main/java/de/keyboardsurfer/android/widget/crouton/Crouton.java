@@ -19,13 +19,9 @@ package de.keyboardsurfer.android.widget.crouton;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Shader;
 import android.graphics.Typeface;
-import android.graphics.drawable.BitmapDrawable;
-import android.text.Spannable;
-import android.text.SpannableString;
+import android.graphics.drawable.Drawable;
+import android.text.Spanned;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.View;
@@ -37,6 +33,7 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
+import java.util.Collection;
 
 /*
  * Based on an article by Cyril Mottier (http://android.cyrilmottier.com/?p=773) <br>
@@ -55,19 +52,41 @@ public final class Crouton {
   private static final String NULL_PARAMETERS_ARE_NOT_ACCEPTED = "Null parameters are not accepted";
   private static final int IMAGE_ID = 0x100;
   private static final int TEXT_ID = 0x101;
-  private final CharSequence text;
+  private static final int NOT_MEASURED = -1;
+  private CharSequence text;
   private final Style style;
   private Configuration configuration = null;
-  private final View customView;
+  private View customView;
+  /** Inflates the custom view of a {@link Crouton} made from a layout resource until it has been resolved. */
+  private CustomViewInflation customViewInflation;
 
   private OnClickListener onClickListener;
 
   private Activity activity;
   private ViewGroup viewGroup;
-  private FrameLayout croutonView;
+  private View croutonView;
+  /**
+   * The text layout that is computed while this {@link Crouton} is queued. A {@link FlatCroutonView} draws it, a
+   * {@link TextView} measures its text faster as the glyphs and runs have been shaped already.
+   */
+  private PrecomputedTextLayout precomputedTextLayout;
   private Animation inAnimation;
   private Animation outAnimation;
+  /** The height the default animations are built for, as of {@link #getCroutonViewHeight()}. */
+  private int croutonViewHeight = NOT_MEASURED;
   private LifecycleCallback lifecycleCallback = null;
+  private long sequenceNumber;
+  private long addTime;
+  private long notBefore;
+  private Object reservation;
+  private int messageToken;
+  private int epoch;
+  private int activityEpoch;
+  private Object queue;
+  private boolean isCancelled;
+  private Manager.State state = Manager.State.IDLE;
+  private Object collapseKey;
+  private int repeatCount = 1;
 
   /**
    * Creates the {@link Crouton}.
@@ -177,6 +196,31 @@ public final class Crouton {
     this.configuration = configuration;
   }
 
+  /**
+   * Creates the {@link Crouton}.
+   *
+   * @param activity
+   *     The {@link Activity} that represents the context in which the Crouton should exist.
+   * @param layoutResId
+   *     The resource id of the layout of the custom view to display.
+   * @param viewBinder
+   *     The {@link ViewBinder} that binds the custom view once it has been inflated.
+   * @param viewGroup
+   *     The {@link ViewGroup} that this {@link Crouton} should be added to.
+   */
+  private Crouton(Activity activity, int layoutResId, ViewBinder viewBinder, ViewGroup viewGroup) {
+    if ((activity == null) || (viewBinder == null)) {
+      throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+    }
+
+    this.activity = activity;
+    this.viewGroup = viewGroup;
+    this.customView = null;
+    this.customViewInflation = new CustomViewInflation(this, activity, layoutResId, viewBinder);
+    this.style = new Style.Builder().build();
+    this.text = null;
+  }
+
   /**
    * Creates a {@link Crouton} with provided text and style for a given
    * activity.
@@ -362,6 +406,54 @@ public final class Crouton {
     return new Crouton(activity, customView, (ViewGroup) activity.findViewById(viewGroupResId), configuration);
   }
 
+  /**
+   * Creates a {@link Crouton} with a custom view that is inflated from a layout resource on a background thread for
+   * a given activity.
+   * <p/>
+   * The {@link Crouton} is displayed once its view has been inflated and bound, without holding up
+   * {@link Crouton}s that are displayed on other targets.
+   *
+   * @param activity
+   *     The {@link Activity} that represents the context in which the Crouton should exist.
+   * @param layoutResId
+   *     The resource id of the layout of the custom view to display.
+   * @param viewBinder
+   *     The {@link ViewBinder} that binds the custom view on the main thread once it has been inflated.
+   *
+   * @return The created {@link Crouton}.
+   *
+   * @since 1.9
+   */
+  public static Crouton make(Activity activity, int layoutResId, ViewBinder viewBinder) {
+    return make(activity, layoutResId, viewBinder, null);
+  }
+
+  /**
+   * Creates a {@link Crouton} with a custom view that is inflated from a layout resource on a background thread for
+   * a given activity.
+   * <p/>
+   * The {@link Crouton} is displayed once its view has been inflated and bound, without holding up
+   * {@link Crouton}s that are displayed on other targets.
+   *
+   * @param activity
+   *     The {@link Activity} that represents the context in which the Crouton should exist.
+   * @param layoutResId
+   *     The resource id of the layout of the custom view to display.
+   * @param viewBinder
+   *     The {@link ViewBinder} that binds the custom view on the main thread once it has been inflated.
+   * @param viewGroup
+   *     The {@link ViewGroup} that this {@link Crouton} should be added to.
+   *
+   * @return The created {@link Crouton}.
+   *
+   * @since 1.9
+   */
+  public static Crouton make(Activity activity, int layoutResId, ViewBinder viewBinder, ViewGroup viewGroup) {
+    final Crouton crouton = new Crouton(activity, layoutResId, viewBinder, viewGroup);
+    crouton.customViewInflation.start();
+    return crouton;
+  }
+
   /**
    * Creates a {@link Crouton} with provided text and style for a given activity
    * and displays it directly.
@@ -558,28 +650,112 @@ public final class Crouton {
   }
 
   /**
-   * Cancels a {@link Crouton} immediately.
+   * Limits the rate at which {@link Crouton}s are accepted by {@link #show()}.
+   *
+   * @param rateLimit
+   *     The {@link RateLimit} or <code>null</code> to accept all {@link Crouton}s.
+   */
+  public static void setRateLimit(RateLimit rateLimit) {
+    Manager.getInstance().setRateLimit(rateLimit);
+  }
+
+  /**
+   * Limits the number of {@link Crouton}s waiting to be displayed on each {@link ViewGroup} or {@link Activity}.
+   *
+   * @param queueLimit
+   *     The {@link QueueLimit} or <code>null</code> to queue any number of {@link Crouton}s.
+   */
+  public static void setQueueLimit(QueueLimit queueLimit) {
+    Manager.getInstance().setQueueLimit(queueLimit);
+  }
+
+  /**
+   * Displays several {@link Crouton}s of an {@link Activity} at once. Must be called from the main thread.
+   *
+   * @param activity
+   *     The {@link Activity} the {@link Crouton}s are displayed on.
+   * @param stacking
+   *     The {@link Stacking} or <code>null</code> to display one {@link Crouton} at a time.
+   */
+  public static void setStacking(Activity activity, Stacking stacking) {
+    Manager.getInstance().setStacking(activity, stacking);
+  }
+
+  /**
+   * Displays several {@link Crouton}s of a {@link ViewGroup} at once. Must be called from the main thread.
+   *
+   * @param viewGroup
+   *     The {@link ViewGroup} the {@link Crouton}s are displayed in.
+   * @param stacking
+   *     The {@link Stacking} or <code>null</code> to display one {@link Crouton} at a time.
+   */
+  public static void setStacking(ViewGroup viewGroup, Stacking stacking) {
+    Manager.getInstance().setStacking(viewGroup, stacking);
+  }
+
+  /**
+   * @return The number of {@link Crouton}s that have been dropped or coalesced because they exceeded the
+   * {@link RateLimit}.
+   */
+  public static int getRejectedCroutonCount() {
+    return Manager.getInstance().getRejectedCroutonCount();
+  }
+
+  /**
+   * Must be called from the main thread.
+   *
+   * @param activity
+   *     The {@link Activity} to count the {@link Crouton}s for.
+   *
+   * @return The number of {@link Crouton}s that are displayed or waiting to be displayed for the {@link Activity}.
+   */
+  public static int getCroutonCount(Activity activity) {
+    return Manager.getInstance().getCroutonCount(activity);
+  }
+
+  /**
+   * Cancels a {@link Crouton} immediately. Can be called from any thread.
    */
   public void cancel() {
     Manager manager = Manager.getInstance();
-    manager.removeCroutonImmediately(this);
+    manager.cancel(this);
   }
 
   /**
    * Displays the {@link Crouton}. If there's another {@link Crouton} visible at
-   * the time, this {@link Crouton} will be displayed afterwards.
+   * the time, this {@link Crouton} will be displayed afterwards, unless it has a
+   * higher {@link Configuration.Builder#setPriority(int) priority}.
+   * <p/>
+   * Can be called from any thread.
    */
   public void show() {
     Manager.getInstance().add(this);
   }
 
+  /**
+   * Displays several {@link Crouton}s at once, e.g. when replaying notifications that have piled up.
+   * <p/>
+   * All {@link Crouton}s are queued before the first one of them is displayed.
+   * Can be called from any thread.
+   *
+   * @param croutons
+   *     The {@link Crouton}s to display.
+   *
+   * @since 1.9
+   */
+  public static void showAll(Collection<Crouton> croutons) {
+    if (null == croutons) {
+      throw new IllegalArgumentException(NULL_PARAMETERS_ARE_NOT_ACCEPTED);
+    }
+    Manager.getInstance().addAll(croutons);
+  }
+
   public Animation getInAnimation() {
     if ((null == this.inAnimation) && (null != this.activity)) {
       if (getConfiguration().inAnimationResId > 0) {
         this.inAnimation = AnimationUtils.loadAnimation(getActivity(), getConfiguration().inAnimationResId);
       } else {
-        measureCroutonView();
-        this.inAnimation = DefaultAnimationsBuilder.buildDefaultSlideInDownAnimation(getView());
+        this.inAnimation = DefaultAnimationsBuilder.buildDefaultSlideInDownAnimation(getCroutonViewHeight());
       }
     }
 
@@ -591,7 +767,7 @@ public final class Crouton {
       if (getConfiguration().outAnimationResId > 0) {
         this.outAnimation = AnimationUtils.loadAnimation(getActivity(), getConfiguration().outAnimationResId);
       } else {
-        this.outAnimation = DefaultAnimationsBuilder.buildDefaultSlideOutUpAnimation(getView());
+        this.outAnimation = DefaultAnimationsBuilder.buildDefaultSlideOutUpAnimation(getCroutonViewHeight());
       }
     }
 
@@ -612,7 +788,17 @@ public final class Crouton {
    * @since 1.9
    */
   public void hide() {
-    Manager.getInstance().removeCrouton(this);
+    Manager.getInstance().hide(this);
+  }
+
+  /**
+   * @return How often this {@link Crouton} has been shown, including equal {@link Crouton}s that have been
+   * collapsed into it.
+   *
+   * @see Configuration.Builder#setCollapseEnabled(boolean)
+   */
+  public int getRepeatCount() {
+    return repeatCount;
   }
 
   /**
@@ -722,6 +908,192 @@ public final class Crouton {
     lifecycleCallback = null;
   }
 
+  /**
+   * @param sequenceNumber
+   *     The position of this {@link Crouton} in order of insertion into the queue.
+   */
+  void setSequenceNumber(long sequenceNumber) {
+    this.sequenceNumber = sequenceNumber;
+  }
+
+  /**
+   * @return the sequenceNumber
+   */
+  long getSequenceNumber() {
+    return sequenceNumber;
+  }
+
+  /**
+   * @return the token the {@link Manager}'s messages for this {@link Crouton} have to carry to be handled.
+   */
+  int getMessageToken() {
+    return messageToken;
+  }
+
+  /**
+   * Makes all messages that have been sent for this {@link Crouton} so far stale.
+   */
+  void invalidateMessages() {
+    messageToken++;
+  }
+
+  /**
+   * @return the time this {@link Crouton} has been shown at, in milliseconds of the {@link Manager}'s clock.
+   */
+  long getAddTime() {
+    return addTime;
+  }
+
+  /**
+   * @param addTime
+   *     The time this {@link Crouton} is shown at, in milliseconds of the {@link Manager}'s clock.
+   */
+  void setAddTime(long addTime) {
+    this.addTime = addTime;
+  }
+
+  /**
+   * @return The time before which this {@link Crouton} must not be displayed due to the {@link RateLimit}, in
+   * milliseconds of the {@link Manager}'s clock.
+   */
+  long getNotBefore() {
+    return notBefore;
+  }
+
+  /**
+   * @param notBefore
+   *     The time before which this {@link Crouton} must not be displayed, in milliseconds of the {@link Manager}'s
+   *     clock.
+   */
+  void setNotBefore(long notBefore) {
+    this.notBefore = notBefore;
+  }
+
+  /**
+   * @return The token bucket this {@link Crouton} has reserved a future token of or <code>null</code>.
+   */
+  Object getReservation() {
+    return reservation;
+  }
+
+  /**
+   * @param reservation
+   *     The token bucket this {@link Crouton} has reserved a future token of or <code>null</code>.
+   */
+  void setReservation(Object reservation) {
+    this.reservation = reservation;
+  }
+
+  /**
+   * @return the {@link Manager}'s epoch at the time this {@link Crouton} has been added.
+   */
+  int getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * @param epoch
+   *     The {@link Manager}'s epoch at the time this {@link Crouton} is added.
+   */
+  void setEpoch(int epoch) {
+    this.epoch = epoch;
+  }
+
+  /**
+   * @return the epoch of this {@link Crouton}'s activity at the time it has been added.
+   */
+  int getActivityEpoch() {
+    return activityEpoch;
+  }
+
+  /**
+   * @param activityEpoch
+   *     The epoch of this {@link Crouton}'s activity at the time it is added.
+   */
+  void setActivityEpoch(int activityEpoch) {
+    this.activityEpoch = activityEpoch;
+  }
+
+  /**
+   * @return the {@link Manager.State} of this {@link Crouton}.
+   */
+  Manager.State getState() {
+    return state;
+  }
+
+  /**
+   * @param state
+   *     The {@link Manager.State} this {@link Crouton} enters.
+   */
+  void setState(Manager.State state) {
+    this.state = state;
+  }
+
+  /**
+   * @return the queue this {@link Crouton} is waiting in or <code>null</code>.
+   */
+  Object getQueue() {
+    return queue;
+  }
+
+  /**
+   * @param queue
+   *     The queue this {@link Crouton} is waiting in or <code>null</code>.
+   */
+  void setQueue(Object queue) {
+    this.queue = queue;
+  }
+
+  /**
+   * @return <code>true</code> if this {@link Crouton} has been cancelled while waiting in its queue.
+   */
+  boolean isCancelled() {
+    return isCancelled;
+  }
+
+  /**
+   * @param isCancelled
+   *     Whether this {@link Crouton} has been cancelled while waiting in its queue.
+   */
+  void setCancelled(boolean isCancelled) {
+    this.isCancelled = isCancelled;
+  }
+
+  /**
+   * @return the key identifying equal {@link Crouton}s or <code>null</code> if this {@link Crouton} should not be
+   * collapsed.
+   */
+  Object getCollapseKey() {
+    if ((null == collapseKey) && getConfiguration().isCollapseEnabled) {
+      if (null != getConfiguration().collapseKey) {
+        collapseKey = getConfiguration().collapseKey;
+      } else if (null != text) {
+        collapseKey = new ContentKey(text.toString(), style);
+      }
+    }
+    return collapseKey;
+  }
+
+  /**
+   * Replaces the text of a {@link Crouton} that is still queued, dropping a view that has been prepared for the
+   * previous text.
+   *
+   * @param text
+   *     The new text.
+   */
+  void setText(CharSequence text) {
+    this.text = text;
+    precomputedTextLayout = null;
+    recycleView();
+  }
+
+  /**
+   * Increments the repeat count after an equal {@link Crouton} has been collapsed into this one.
+   */
+  void incrementRepeatCount() {
+    repeatCount++;
+  }
+
   /**
    * @return the lifecycleCallback
    */
@@ -776,6 +1148,13 @@ public final class Crouton {
       return this.customView;
     }
 
+    // take over the custom view once it has been inflated, or inflate it right away
+    if (null != this.customViewInflation) {
+      this.customView = this.customViewInflation.getView();
+      this.customViewInflation = null;
+      return this.customView;
+    }
+
     // if already setup return the view
     if (null == this.croutonView) {
       initializeCroutonView();
@@ -784,27 +1163,139 @@ public final class Crouton {
     return croutonView;
   }
 
-  private void measureCroutonView() {
+  /**
+   * Builds and measures the view of this {@link Crouton} and resolves its animations ahead of its display, so
+   * displaying it only has to attach the view.
+   */
+  void prepare() {
+    getView();
+    getInAnimation();
+    getOutAnimation();
+  }
+
+  /**
+   * @return <code>true</code> if the view of this {@link Crouton} can be built right away, <code>false</code> if its
+   * custom view is still being inflated in the background.
+   */
+  boolean isViewReady() {
+    return (null == customViewInflation) || customViewInflation.isDone();
+  }
+
+  /**
+   * @return <code>true</code> if this {@link Crouton} is ready to be displayed as of {@link #prepare()}.
+   */
+  boolean isPrepared() {
+    return (null != inAnimation) && (null != outAnimation);
+  }
+
+  /**
+   * A text {@link Crouton} whose text, {@link Style} and available width have been measured before is not measured
+   * again, but gets the height from the {@link MeasuredHeightCache}.
+   *
+   * @return The height of the view of this {@link Crouton} for its default animations.
+   */
+  private int getCroutonViewHeight() {
+    if (NOT_MEASURED != croutonViewHeight) {
+      return croutonViewHeight;
+    }
+
+    final int availableWidth = getAvailableWidth();
+    // Spans of the text itself might change its height, so only plain texts are cached. So are only widths of
+    // targets that have been laid out.
+    if ((null != customView) || (null != customViewInflation) || (null == text) || (text instanceof Spanned)
+        || (availableWidth <= 0)) {
+      measureCroutonView(availableWidth);
+      croutonViewHeight = getView().getMeasuredHeight();
+      return croutonViewHeight;
+    }
+
+    final ResolvedStyle resolvedStyle = ResolvedStyle.get(activity.getResources(), style);
+    final String plainText = text.toString();
+    final Integer cachedHeight = MeasuredHeightCache.get(activity, resolvedStyle, plainText, availableWidth);
+    if (null != cachedHeight) {
+      croutonViewHeight = cachedHeight;
+      return croutonViewHeight;
+    }
+    measureCroutonView(availableWidth);
+    croutonViewHeight = getView().getMeasuredHeight();
+    MeasuredHeightCache.put(activity, resolvedStyle, plainText, availableWidth, croutonViewHeight);
+    return croutonViewHeight;
+  }
+
+  private void measureCroutonView(int availableWidth) {
     View view = getView();
-    int widthSpec;
+    int widthSpec = View.MeasureSpec.makeMeasureSpec(availableWidth, View.MeasureSpec.AT_MOST);
+    view.measure(widthSpec, View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+  }
+
+  /** @return The width of the {@link ViewGroup} or the window the view of this {@link Crouton} is displayed in. */
+  private int getAvailableWidth() {
     if (null != viewGroup) {
-      widthSpec = View.MeasureSpec.makeMeasureSpec(viewGroup.getMeasuredWidth(), View.MeasureSpec.AT_MOST);
-    } else {
-      widthSpec = View.MeasureSpec.makeMeasureSpec(activity.getWindow().getDecorView().getMeasuredWidth(),
-          View.MeasureSpec.AT_MOST);
+      return viewGroup.getMeasuredWidth();
     }
+    return activity.getWindow().getDecorView().getMeasuredWidth();
+  }
 
-    view.measure(widthSpec, View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+  /**
+   * Hands the view of this {@link Crouton} over to the {@link CroutonViewPool} once it has been removed, so another
+   * {@link Crouton} with the same {@link Style} can reuse it. Must be called before the activity is detached.
+   */
+  void recycleView() {
+    if ((null == croutonView) || (null == activity) || (null != croutonView.getParent())) {
+      return;
+    }
+    CroutonViewPool.release(activity, style, croutonView);
+    croutonView = null;
+    inAnimation = null;
+    outAnimation = null;
+    croutonViewHeight = NOT_MEASURED;
   }
 
   private void initializeCroutonView() {
     Resources resources = this.activity.getResources();
 
-    this.croutonView = initializeCroutonViewGroup(resources);
+    // Reuse the view of a removed Crouton with the same style if there is one.
+    final View recycledView = CroutonViewPool.acquire(this.activity, this.style);
+    if (null != recycledView) {
+      bindCroutonView(recycledView, resources);
+      this.croutonView = recycledView;
+      return;
+    }
+
+    if (this.style.isFlatRenderingEnabled) {
+      this.croutonView = initializeFlatCroutonView(resources);
+      return;
+    }
+
+    FrameLayout croutonViewGroup = initializeCroutonViewGroup(resources);
 
     // create content view
     RelativeLayout contentView = initializeContentView(resources);
-    this.croutonView.addView(contentView);
+    croutonViewGroup.addView(contentView);
+    this.croutonView = croutonViewGroup;
+  }
+
+  /**
+   * Binds a recycled view to this {@link Crouton}. Everything else only depends on the {@link Style}.
+   */
+  private void bindCroutonView(View croutonView, Resources resources) {
+    if (null != onClickListener) {
+      croutonView.setOnClickListener(onClickListener);
+    } else {
+      croutonView.setOnClickListener(null);
+      croutonView.setClickable(false);
+    }
+    croutonView.setLayoutParams(initializeCroutonViewLayoutParams(resources));
+    if (croutonView instanceof FlatCroutonView) {
+      bindFlatText((FlatCroutonView) croutonView, resources);
+    } else {
+      bindText((TextView) croutonView.findViewById(TEXT_ID), resources);
+    }
+  }
+
+  private FrameLayout.LayoutParams initializeCroutonViewLayoutParams(Resources resources) {
+    final ResolvedStyle resolvedStyle = ResolvedStyle.get(resources, this.style);
+    return new FrameLayout.LayoutParams(resolvedStyle.width, resolvedStyle.height);
   }
 
   private FrameLayout initializeCroutonViewGroup(Resources resources) {
@@ -814,41 +1305,38 @@ public final class Crouton {
       croutonView.setOnClickListener(onClickListener);
     }
 
-    final int height;
-    if (this.style.heightDimensionResId > 0) {
-      height = resources.getDimensionPixelSize(this.style.heightDimensionResId);
-    } else {
-      height = this.style.heightInPixels;
-    }
+    croutonView.setLayoutParams(initializeCroutonViewLayoutParams(resources));
+    initializeBackground(croutonView, resources);
+    return croutonView;
+  }
 
-    final int width;
-    if (this.style.widthDimensionResId > 0) {
-      width = resources.getDimensionPixelSize(this.style.widthDimensionResId);
-    } else {
-      width = this.style.widthInPixels;
+  private FlatCroutonView initializeFlatCroutonView(Resources resources) {
+    FlatCroutonView croutonView = new FlatCroutonView(this.activity, this.style);
+
+    if (null != onClickListener) {
+      croutonView.setOnClickListener(onClickListener);
     }
 
-    croutonView.setLayoutParams(
-        new FrameLayout.LayoutParams(width != 0 ? width : FrameLayout.LayoutParams.MATCH_PARENT, height));
+    croutonView.setLayoutParams(initializeCroutonViewLayoutParams(resources));
+    initializeBackground(croutonView, resources);
+    int padding = getPadding(resources);
+    croutonView.setPadding(padding, padding, padding, padding);
+    bindFlatText(croutonView, resources);
+    return croutonView;
+  }
 
+  private void initializeBackground(View croutonView, Resources resources) {
     // set background
-    if (this.style.backgroundColorValue != Style.NOT_SET) {
-      croutonView.setBackgroundColor(this.style.backgroundColorValue);
-    } else {
-      croutonView.setBackgroundColor(resources.getColor(this.style.backgroundColorResourceId));
-    }
+    croutonView.setBackgroundColor(ResolvedStyle.get(resources, this.style).backgroundColor);
 
     // set the background drawable if set. This will override the background
     // color.
     if (this.style.backgroundDrawableResourceId != 0) {
-      Bitmap background = BitmapFactory.decodeResource(resources, this.style.backgroundDrawableResourceId);
-      BitmapDrawable drawable = new BitmapDrawable(resources, background);
-      if (this.style.isTileEnabled) {
-        drawable.setTileModeXY(Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+      Drawable drawable = BackgroundBitmapCache.getBackground(resources, this.style);
+      if (null != drawable) {
+        croutonView.setBackgroundDrawable(drawable);
       }
-      croutonView.setBackgroundDrawable(drawable);
     }
-    return croutonView;
   }
 
   private RelativeLayout initializeContentView(final Resources resources) {
@@ -857,13 +1345,7 @@ public final class Crouton {
         RelativeLayout.LayoutParams.MATCH_PARENT));
 
     // set padding
-    int padding = this.style.paddingInPixels;
-
-    // if a padding dimension has been set, this will overwrite any padding
-    // in pixels
-    if (this.style.paddingDimensionResId > 0) {
-      padding = resources.getDimensionPixelSize(this.style.paddingDimensionResId);
-    }
+    int padding = getPadding(resources);
     contentView.setPadding(padding, padding, padding, padding);
 
     // only setup image if one is requested
@@ -893,24 +1375,21 @@ public final class Crouton {
     return contentView;
   }
 
+  private int getPadding(Resources resources) {
+    return ResolvedStyle.get(resources, this.style).padding;
+  }
+
   private TextView initializeTextView(final Resources resources) {
     TextView text = new TextView(this.activity);
     text.setId(TEXT_ID);
-    if (this.style.fontName != null) {
-      setTextWithCustomFont(text, this.style.fontName);
-    } else if (this.style.fontNameResId != 0) {
-      setTextWithCustomFont(text, resources.getString(this.style.fontNameResId));
-    } else {
-      text.setText(this.text);
-    }
+    bindText(text, resources);
     text.setTypeface(Typeface.DEFAULT_BOLD);
     text.setGravity(this.style.gravity);
 
     // set the text color if set
-    if (this.style.textColorValue != Style.NOT_SET) {
-      text.setTextColor(this.style.textColorValue);
-    } else if (this.style.textColorResourceId != 0) {
-      text.setTextColor(resources.getColor(this.style.textColorResourceId));
+    final ResolvedStyle resolvedStyle = ResolvedStyle.get(resources, this.style);
+    if (resolvedStyle.hasTextColor) {
+      text.setTextColor(resolvedStyle.textColor);
     }
 
     // Set the text size. If the user has set a text size and text
@@ -921,8 +1400,8 @@ public final class Crouton {
     }
 
     // Setup the shadow if requested
-    if (this.style.textShadowColorResId != 0) {
-      initializeTextViewShadow(resources, text);
+    if (resolvedStyle.hasTextShadow) {
+      initializeTextViewShadow(resolvedStyle, text);
     }
 
     // Set the text appearance
@@ -932,17 +1411,89 @@ public final class Crouton {
     return text;
   }
 
-  private void setTextWithCustomFont(TextView text, String fontName) {
-    if (this.text != null) {
-      SpannableString s = new SpannableString(this.text);
-      s.setSpan(new TypefaceSpan(text.getContext(), fontName), 0, s.length(),
-          Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-      text.setText(s);
+  private void bindFlatText(FlatCroutonView croutonView, Resources resources) {
+    croutonView.setText(getStyledText(resources), precomputedTextLayout);
+  }
+
+  /**
+   * Starts the work for the view of this {@link Crouton} that can be done off the main thread, so it is ready by the
+   * time the {@link Crouton} is displayed. Must be called from the main thread.
+   */
+  void precompute() {
+    if ((null != croutonView) || (null != customView) || (null != customViewInflation) || (null == activity)) {
+      return;
+    }
+    final Resources resources = activity.getResources();
+    if (0 != style.backgroundDrawableResourceId) {
+      BackgroundBitmapCache.preload(resources, style);
+    }
+    final String fontName = ResolvedStyle.get(resources, style).fontName;
+    if (null != fontName) {
+      TypefaceRegistry.preloadIfMissing(activity, fontName);
+    }
+    precomputeTextLayout();
+  }
+
+  /**
+   * Starts laying out the text of a {@link Crouton} in the background. Does nothing if the width the text will be laid
+   * out in isn't known yet.
+   * <p/>
+   * A {@link TextView} can't take a finished layout, but it measures its text with the same paint, so it finds the
+   * shaped text in the text layout cache of the framework (API 14 and above) instead of shaping it on the main thread.
+   */
+  private void precomputeTextLayout() {
+    if ((null != precomputedTextLayout) || (null == text)) {
+      return;
+    }
+    final Resources resources = activity.getResources();
+    final int width = getExpectedWidth(resources);
+    if (width <= 0) {
+      return;
+    }
+
+    // The image width is looked up once per Style rather than decoding the image at every enqueue.
+    final int imageWidth = ResolvedStyle.get(resources, style).getImageWidth(resources, style);
+    final int textWidth = width - 2 * getPadding(resources) - imageWidth;
+    if (textWidth <= 0) {
+      return;
+    }
+    // The font is applied in the background, after it has been preloaded.
+    precomputedTextLayout = new PrecomputedTextLayout(activity, text, ResolvedStyle.get(resources, style).fontName,
+        FlatCroutonView.createTextPaint(activity, style), textWidth, FlatCroutonView.getTextAlignment(style.gravity));
+    precomputedTextLayout.start();
+  }
+
+  /** @return The width the view of this {@link Crouton} will most likely be measured with or 0 if it is unknown. */
+  private int getExpectedWidth(Resources resources) {
+    final int width = ResolvedStyle.get(resources, this.style).width;
+    if (width > 0) {
+      return width;
     }
+    return getAvailableWidth();
   }
 
-  private void initializeTextViewShadow(final Resources resources, final TextView text) {
-    int textShadowColor = resources.getColor(this.style.textShadowColorResId);
+  private void bindText(TextView text, Resources resources) {
+    text.setText(getStyledText(resources));
+  }
+
+  /** @return The text of this {@link Crouton}, spanned with the custom font of its {@link Style} if it has one. */
+  private CharSequence getStyledText(Resources resources) {
+    final String fontName = ResolvedStyle.get(resources, this.style).fontName;
+    if (fontName != null) {
+      return getTextWithCustomFont(fontName);
+    }
+    return this.text;
+  }
+
+  private CharSequence getTextWithCustomFont(String fontName) {
+    if (this.text == null) {
+      return null;
+    }
+    return TypefaceRegistry.applyTypeface(this.activity, this.text, fontName);
+  }
+
+  private void initializeTextViewShadow(final ResolvedStyle resolvedStyle, final TextView text) {
+    int textShadowColor = resolvedStyle.textShadowColor;
     float textShadowRadius = this.style.textShadowRadius;
     float textShadowDx = this.style.textShadowDx;
     float textShadowDy = this.style.textShadowDy;
@@ -977,4 +1528,32 @@ public final class Crouton {
 
     return image;
   }
+
+  /** Identifies {@link Crouton}s by their text and {@link Style} instance. */
+  private static final class ContentKey {
+    private final String text;
+    private final Style style;
+
+    ContentKey(String text, Style style) {
+      this.text = text;
+      this.style = style;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ContentKey)) {
+        return false;
+      }
+      final ContentKey other = (ContentKey) o;
+      return (style == other.style) && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * text.hashCode() + System.identityHashCode(style);
+    }
+  }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the view hierarchies of removed text {@link Crouton}s for reuse by later {@link Crouton}s with the same
+ * {@link Style} in the same {@link Activity}.
+ * <p/>
+ * The views hold on to their {@link Activity}, so its views are released by
+ * {@link Crouton#clearCroutonsForActivity(Activity)} and when the {@link Activity} is destroyed, e.g. on a
+ * configuration change. As this needs {@link Application.ActivityLifecycleCallbacks}, views are only kept on API 14
+ * and above. Must only be used from the main thread.
+ */
+final class CroutonViewPool {
+  /** The number of views kept per {@link Style} and {@link Activity}. */
+  private static final int MAX_POOL_SIZE = 2;
+
+  private static final Map<Activity, Map<Style, List<View>>> pools =
+      new HashMap<Activity, Map<Style, List<View>>>();
+
+  /** The {@link Application} the {@link ActivityReleaser} has been registered with. */
+  private static Application application;
+
+  private CroutonViewPool() {
+    /* no-op */
+  }
+
+  /**
+   * @param activity
+   *   The {@link Activity} the view is displayed in.
+   * @param style
+   *   The {@link Style} the view has been built with.
+   *
+   * @return A view that has been built with the {@link Style} in the {@link Activity} or <code>null</code>.
+   */
+  static View acquire(Activity activity, Style style) {
+    final Map<Style, List<View>> activityPool = pools.get(activity);
+    if (null == activityPool) {
+      return null;
+    }
+    final List<View> stylePool = activityPool.get(style);
+    if ((null == stylePool) || stylePool.isEmpty()) {
+      return null;
+    }
+    return stylePool.remove(stylePool.size() - 1);
+  }
+
+  /**
+   * Keeps a view that has been removed from its parent, unless the pool is full, the {@link Activity} is finishing or
+   * its destruction can't be observed.
+   *
+   * @param activity
+   *   The {@link Activity} the view has been displayed in.
+   * @param style
+   *   The {@link Style} the view has been built with.
+   * @param croutonView
+   *   The view.
+   */
+  static void release(Activity activity, Style style, View croutonView) {
+    if (activity.isFinishing() || !registerActivityReleaser(activity)) {
+      return;
+    }
+    Map<Style, List<View>> activityPool = pools.get(activity);
+    if (null == activityPool) {
+      // Styles don't override equals(), so identity is what matters anyway.
+      activityPool = new IdentityHashMap<Style, List<View>>();
+      pools.put(activity, activityPool);
+    }
+    List<View> stylePool = activityPool.get(style);
+    if (null == stylePool) {
+      stylePool = new ArrayList<View>(MAX_POOL_SIZE);
+      activityPool.put(style, stylePool);
+    }
+    if (stylePool.size() < MAX_POOL_SIZE) {
+      croutonView.clearAnimation();
+      stylePool.add(croutonView);
+    }
+  }
+
+  /**
+   * Drops all views of an {@link Activity}.
+   *
+   * @param activity
+   *   The {@link Activity} whose views are dropped.
+   */
+  static void clear(Activity activity) {
+    pools.remove(activity);
+  }
+
+  /** Drops all views. */
+  static void clear() {
+    pools.clear();
+  }
+
+  /**
+   * @param activity
+   *   The {@link Activity} whose {@link Application} has to release its views.
+   *
+   * @return <code>true</code> if the views of the {@link Activity} are dropped once it is destroyed.
+   */
+  private static boolean registerActivityReleaser(Activity activity) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      return false;
+    }
+    final Application activityApplication = activity.getApplication();
+    if (null == activityApplication) {
+      return false;
+    }
+    if (activityApplication != application) {
+      ActivityReleaser.register(activityApplication);
+      application = activityApplication;
+    }
+    return true;
+  }
+
+  /** Drops the views of an {@link Activity} once it is destroyed. */
+  @TargetApi(14)
+  private static final class ActivityReleaser implements Application.ActivityLifecycleCallbacks {
+    static void register(Application application) {
+      application.registerActivityLifecycleCallbacks(new ActivityReleaser());
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+      clear(activity);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+      /* no-op */
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+      /* no-op */
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+      /* no-op */
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+      /* no-op */
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+      /* no-op */
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+      /* no-op */
+    }
+  }
+}
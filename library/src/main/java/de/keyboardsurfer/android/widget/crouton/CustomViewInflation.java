@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Inflates the custom view of a {@link Crouton} made from a layout resource on the {@link BackgroundExecutor}, so
+ * the {@link Manager} only has to attach it once it is ready.
+ * <p/>
+ * Views that can't be inflated off the main thread, e.g. because they create a {@link android.os.Handler}, are
+ * inflated on the main thread instead.
+ */
+final class CustomViewInflation implements Callable<View> {
+  private final Crouton crouton;
+  private final Activity activity;
+  private final int layoutResId;
+  private final ViewBinder viewBinder;
+  private final FutureTask<View> task;
+
+  /**
+   * @param crouton
+   *   The {@link Crouton} the view is inflated for.
+   * @param activity
+   *   The {@link Activity} to inflate the view in.
+   * @param layoutResId
+   *   The resource id of the layout to inflate.
+   * @param viewBinder
+   *   The {@link ViewBinder} to bind the view with on the main thread.
+   */
+  CustomViewInflation(Crouton crouton, Activity activity, int layoutResId, ViewBinder viewBinder) {
+    this.crouton = crouton;
+    this.activity = activity;
+    this.layoutResId = layoutResId;
+    this.viewBinder = viewBinder;
+    this.task = new FutureTask<View>(this) {
+      @Override
+      protected void done() {
+        if (!isCancelled()) {
+          Manager.getInstance().onCustomViewInflated(CustomViewInflation.this.crouton);
+        }
+      }
+    };
+  }
+
+  /** Starts inflating the view in the background. */
+  void start() {
+    BackgroundExecutor.get().execute(task);
+  }
+
+  @Override
+  public View call() {
+    return inflate();
+  }
+
+  private View inflate() {
+    return LayoutInflater.from(activity).inflate(layoutResId, null, false);
+  }
+
+  /**
+   * @return <code>true</code> if the background inflation has finished, whether it has succeeded or not.
+   */
+  boolean isDone() {
+    return task.isDone();
+  }
+
+  /**
+   * Must be called from the main thread. Never waits for the background thread.
+   *
+   * @return The bound view, inflated in the background if that has finished successfully, else on the main thread.
+   */
+  View getView() {
+    View view = null;
+    if (task.isDone() && !task.isCancelled()) {
+      try {
+        view = task.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        // The view is inflated on the main thread instead.
+      }
+    } else {
+      task.cancel(false);
+    }
+    if (null == view) {
+      view = inflate();
+    }
+    viewBinder.bindView(view);
+    return view;
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.ImageView;
+
+/**
+ * Draws the background, image and text of a {@link Crouton} with a {@link Style} that has flat rendering enabled in
+ * a single view, instead of a {@link android.widget.FrameLayout} holding a {@link android.widget.RelativeLayout}, an
+ * {@link ImageView} and a {@link android.widget.TextView}.
+ * <p/>
+ * The image is laid out like an {@link ImageView} that adjusts its view bounds and is aligned to the left and
+ * vertically centered. The text is laid out with a {@link StaticLayout} in the remaining width.
+ */
+final class FlatCroutonView extends View {
+  /** The text size of a {@link android.widget.TextView} without a text appearance, in scaled pixels. */
+  private static final int DEFAULT_TEXT_SIZE = 14;
+
+  /** The text appearance attributes that are honoured, in ascending order as required by obtainStyledAttributes. */
+  private static final int[] TEXT_APPEARANCE_ATTRIBUTES =
+      new int[] { android.R.attr.textSize, android.R.attr.textStyle, android.R.attr.textColor };
+  private static final int TEXT_APPEARANCE_TEXT_SIZE = 0;
+  private static final int TEXT_APPEARANCE_TEXT_STYLE = 1;
+  private static final int TEXT_APPEARANCE_TEXT_COLOR = 2;
+
+  private final Style style;
+  private final TextPaint textPaint;
+  private final Layout.Alignment textAlignment;
+  private final Drawable image;
+  private final Matrix imageMatrix = new Matrix();
+  private final RectF imageSource = new RectF();
+  private final RectF imageDestination = new RectF();
+  private boolean hasImageMatrix;
+  private int imageWidth;
+  private int imageHeight;
+  private CharSequence text;
+  private PrecomputedTextLayout precomputedTextLayout;
+  private Layout textLayout;
+
+  FlatCroutonView(Context context, Style style) {
+    super(context);
+    this.style = style;
+    this.textPaint = createTextPaint(context, style);
+    this.textAlignment = getTextAlignment(style.gravity);
+    this.image = getImage(context.getResources(), style);
+    if (null != image) {
+      // Lets animated images invalidate this view.
+      image.setCallback(this);
+    }
+  }
+
+  /**
+   * @param text
+   *   The text to draw, including any spans.
+   * @param precomputedTextLayout
+   *   The {@link PrecomputedTextLayout} of the text or <code>null</code>.
+   */
+  void setText(CharSequence text, PrecomputedTextLayout precomputedTextLayout) {
+    this.text = text;
+    this.precomputedTextLayout = precomputedTextLayout;
+    this.textLayout = null;
+    // Accessibility services can't read the text from the Layout drawn by this view.
+    setContentDescription(text);
+    requestLayout();
+    invalidate();
+  }
+
+  /** @return A {@link TextPaint} for the text of a {@link Crouton} with the {@link Style}. */
+  static TextPaint createTextPaint(Context context, Style style) {
+    final Resources resources = context.getResources();
+    final ResolvedStyle resolvedStyle = ResolvedStyle.get(resources, style);
+    TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+    paint.density = resources.getDisplayMetrics().density;
+    paint.setTypeface(Typeface.DEFAULT_BOLD);
+
+    // set the text color if set, else use the one of the theme
+    if (resolvedStyle.hasTextColor) {
+      paint.setColor(resolvedStyle.textColor);
+    } else {
+      TypedArray attributes = context.obtainStyledAttributes(new int[] { android.R.attr.textColorPrimary });
+      ColorStateList textColor = attributes.getColorStateList(0);
+      if (null != textColor) {
+        paint.setColor(textColor.getDefaultColor());
+      }
+      attributes.recycle();
+    }
+
+    int textSize = (0 != style.textSize) ? style.textSize : DEFAULT_TEXT_SIZE;
+    paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, textSize,
+        resources.getDisplayMetrics()));
+
+    if (resolvedStyle.hasTextShadow) {
+      paint.setShadowLayer(style.textShadowRadius, style.textShadowDx, style.textShadowDy,
+          resolvedStyle.textShadowColor);
+    }
+
+    // the text appearance overrides the text size and color, like it does for a TextView
+    if (style.textAppearanceResId != 0) {
+      TypedArray appearance = context.obtainStyledAttributes(style.textAppearanceResId, TEXT_APPEARANCE_ATTRIBUTES);
+      if (appearance.hasValue(TEXT_APPEARANCE_TEXT_SIZE)) {
+        paint.setTextSize(appearance.getDimensionPixelSize(TEXT_APPEARANCE_TEXT_SIZE, 0));
+      }
+      if (appearance.hasValue(TEXT_APPEARANCE_TEXT_STYLE)) {
+        paint.setTypeface(Typeface.defaultFromStyle(appearance.getInt(TEXT_APPEARANCE_TEXT_STYLE, Typeface.NORMAL)));
+      }
+      ColorStateList textColor = appearance.getColorStateList(TEXT_APPEARANCE_TEXT_COLOR);
+      if (null != textColor) {
+        paint.setColor(textColor.getDefaultColor());
+      }
+      appearance.recycle();
+    }
+    return paint;
+  }
+
+  static Layout.Alignment getTextAlignment(int gravity) {
+    switch (gravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+      case Gravity.CENTER_HORIZONTAL:
+        return Layout.Alignment.ALIGN_CENTER;
+      case Gravity.RIGHT:
+        return Layout.Alignment.ALIGN_OPPOSITE;
+      default:
+        return Layout.Alignment.ALIGN_NORMAL;
+    }
+  }
+
+  /**
+   * @return An image of the {@link Style} for a single view, so the bounds of several views don't interfere, or
+   * <code>null</code>.
+   */
+  private static Drawable getImage(Resources resources, Style style) {
+    // the image resource overrides the drawable if both are set
+    if (style.imageResId != 0) {
+      return resources.getDrawable(style.imageResId);
+    }
+    if (null == style.imageDrawable) {
+      return null;
+    }
+    final Drawable.ConstantState constantState = style.imageDrawable.getConstantState();
+    if (null == constantState) {
+      return style.imageDrawable;
+    }
+    return constantState.newDrawable(resources).mutate();
+  }
+
+  @Override
+  protected boolean verifyDrawable(Drawable who) {
+    return (who == image) || super.verifyDrawable(who);
+  }
+
+  @Override
+  protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+    final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+    final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+    final int verticalPadding = getPaddingTop() + getPaddingBottom();
+
+    int maxContentWidth = Integer.MAX_VALUE;
+    if (widthMode != MeasureSpec.UNSPECIFIED) {
+      maxContentWidth = Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding);
+    }
+    int maxContentHeight = Integer.MAX_VALUE;
+    if (heightMode == MeasureSpec.EXACTLY) {
+      maxContentHeight = Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - verticalPadding);
+    }
+    measureImage(maxContentWidth, maxContentHeight);
+
+    final int width;
+    if (widthMode == MeasureSpec.UNSPECIFIED) {
+      int desiredTextWidth = (null != text) ? (int) Math.ceil(Layout.getDesiredWidth(text, textPaint)) : 0;
+      width = horizontalPadding + imageWidth + desiredTextWidth;
+    } else {
+      width = MeasureSpec.getSize(widthMeasureSpec);
+    }
+
+    final int textWidth = Math.max(0, width - horizontalPadding - imageWidth);
+    if ((null == textLayout) || (textLayout.getWidth() != textWidth)) {
+      textLayout = (null != precomputedTextLayout) ? precomputedTextLayout.getLayout(textWidth) : null;
+      if (null == textLayout) {
+        textLayout = createTextLayout((null != text) ? text : "", textPaint, textWidth, textAlignment);
+      }
+    }
+
+    int contentHeight = Math.max(imageHeight, textLayout.getHeight());
+    setMeasuredDimension(width, resolveSize(verticalPadding + contentHeight, heightMeasureSpec));
+  }
+
+  /** Sizes the image like an {@link ImageView} with wrapped content that adjusts its view bounds. */
+  private void measureImage(int maxWidth, int maxHeight) {
+    if (null == image) {
+      imageWidth = 0;
+      imageHeight = 0;
+      return;
+    }
+    int width = Math.max(0, image.getIntrinsicWidth());
+    int height = Math.max(0, image.getIntrinsicHeight());
+    if (height > maxHeight) {
+      width = width * maxHeight / height;
+      height = maxHeight;
+    }
+    if (width > maxWidth) {
+      height = (0 != width) ? height * maxWidth / width : 0;
+      width = maxWidth;
+    }
+    if ((width != imageWidth) || (height != imageHeight)) {
+      imageWidth = width;
+      imageHeight = height;
+      configureImageBounds();
+    }
+  }
+
+  /** Places the image within its bounds according to the image scale type, as {@link ImageView} does. */
+  private void configureImageBounds() {
+    final int drawableWidth = image.getIntrinsicWidth();
+    final int drawableHeight = image.getIntrinsicHeight();
+    final ImageView.ScaleType scaleType = style.imageScaleType;
+    hasImageMatrix = false;
+
+    if ((drawableWidth <= 0) || (drawableHeight <= 0) || (ImageView.ScaleType.FIT_XY == scaleType)) {
+      image.setBounds(0, 0, imageWidth, imageHeight);
+      return;
+    }
+    image.setBounds(0, 0, drawableWidth, drawableHeight);
+    if ((ImageView.ScaleType.MATRIX == scaleType)
+        || ((drawableWidth == imageWidth) && (drawableHeight == imageHeight))) {
+      return;
+    }
+
+    hasImageMatrix = true;
+    if (ImageView.ScaleType.CENTER == scaleType) {
+      imageMatrix.setTranslate(Math.round((imageWidth - drawableWidth) * 0.5f),
+          Math.round((imageHeight - drawableHeight) * 0.5f));
+    } else if ((ImageView.ScaleType.CENTER_CROP == scaleType) || (ImageView.ScaleType.CENTER_INSIDE == scaleType)) {
+      float scale;
+      if (ImageView.ScaleType.CENTER_CROP == scaleType) {
+        scale = Math.max((float) imageWidth / drawableWidth, (float) imageHeight / drawableHeight);
+      } else {
+        scale = Math.min(1.0f, Math.min((float) imageWidth / drawableWidth, (float) imageHeight / drawableHeight));
+      }
+      imageMatrix.setScale(scale, scale);
+      imageMatrix.postTranslate(Math.round((imageWidth - drawableWidth * scale) * 0.5f),
+          Math.round((imageHeight - drawableHeight * scale) * 0.5f));
+    } else {
+      imageSource.set(0, 0, drawableWidth, drawableHeight);
+      imageDestination.set(0, 0, imageWidth, imageHeight);
+      imageMatrix.setRectToRect(imageSource, imageDestination, getScaleToFit(scaleType));
+    }
+  }
+
+  private static Matrix.ScaleToFit getScaleToFit(ImageView.ScaleType scaleType) {
+    switch (scaleType) {
+      case FIT_START:
+        return Matrix.ScaleToFit.START;
+      case FIT_END:
+        return Matrix.ScaleToFit.END;
+      default:
+        return Matrix.ScaleToFit.CENTER;
+    }
+  }
+
+  /** Lays out text like a {@link android.widget.TextView} does. Can be called from any thread. */
+  static Layout createTextLayout(CharSequence text, TextPaint textPaint, int width, Layout.Alignment alignment) {
+    return new StaticLayout(text, textPaint, width, alignment, 1.0f, 0.0f, true);
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    final int contentTop = getPaddingTop();
+    final int contentHeight = getHeight() - contentTop - getPaddingBottom();
+
+    if ((null != image) && (imageWidth > 0) && (imageHeight > 0)) {
+      final int saveCount = canvas.save();
+      canvas.translate(getPaddingLeft(), contentTop + (contentHeight - imageHeight) / 2);
+      canvas.clipRect(0, 0, imageWidth, imageHeight);
+      if (hasImageMatrix) {
+        canvas.concat(imageMatrix);
+      }
+      image.draw(canvas);
+      canvas.restoreToCount(saveCount);
+    }
+
+    if (null != textLayout) {
+      final int textTop;
+      if ((style.gravity & Gravity.CENTER) != 0) {
+        textTop = contentTop + (contentHeight - textLayout.getHeight()) / 2;
+      } else if ((style.gravity & Gravity.VERTICAL_GRAVITY_MASK) == Gravity.BOTTOM) {
+        textTop = contentTop + contentHeight - textLayout.getHeight();
+      } else {
+        textTop = contentTop;
+      }
+      final int saveCount = canvas.save();
+      canvas.translate(getPaddingLeft() + imageWidth, textTop);
+      textLayout.draw(canvas);
+      canvas.restoreToCount(saveCount);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/** A {@link Scheduler} running actions on the thread of a {@link Looper}. */
+final class HandlerScheduler implements Scheduler {
+  private final Handler handler;
+
+  HandlerScheduler(Looper looper) {
+    this.handler = new Handler(looper);
+  }
+
+  @Override
+  public long uptimeMillis() {
+    return SystemClock.uptimeMillis();
+  }
+
+  @Override
+  public boolean isSchedulerThread() {
+    return Looper.myLooper() == handler.getLooper();
+  }
+
+  @Override
+  public void schedule(Runnable action, long delayInMilliseconds) {
+    handler.postDelayed(action, delayInMilliseconds);
+  }
+
+  @Override
+  public void scheduleWhenIdle(final IdleAction action) {
+    Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+      @Override
+      public boolean queueIdle() {
+        return action.runWhenIdle();
+      }
+    });
+  }
+
+  /**
+   * Frames are observed via the {@link Choreographer} as of Jelly Bean.
+   */
+  @Override
+  public boolean scheduleOnNextFrame(Runnable action) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+      return false;
+    }
+    NextFrameCallback.post(action);
+    return true;
+  }
+
+  /** Runs an action in a {@link Choreographer} frame callback. */
+  @TargetApi(16)
+  private static final class NextFrameCallback implements Choreographer.FrameCallback {
+    private final Runnable action;
+
+    private NextFrameCallback(Runnable action) {
+      this.action = action;
+    }
+
+    static void post(Runnable action) {
+      Choreographer.getInstance().postFrameCallback(new NextFrameCallback(action));
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      action.run();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "HandlerScheduler{" +
+      "looper=" + handler.getLooper() +
+      '}';
+  }
+}
@@ -21,7 +21,11 @@ public interface LifecycleCallback {
   /** Will be called when your Crouton has been displayed. */
   public void onDisplayed();
 
-  /** Will be called when your {@link Crouton} has been removed. */
+  /**
+   * Will be called when your {@link Crouton} has been removed.
+   * It is also called if your {@link Crouton} is dropped without having been displayed, e.g. because its
+   * {@link Configuration.Builder#setTimeToLive(int) time to live} has passed.
+   */
   public void onRemoved();
 
   //public void onCeasarDressing();
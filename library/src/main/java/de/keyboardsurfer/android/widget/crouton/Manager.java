@@ -16,13 +16,13 @@
 
 package de.keyboardsurfer.android.widget.crouton;
 
+import android.animation.LayoutTransition;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Resources;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Message;
+import android.os.Looper;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
@@ -31,88 +31,943 @@ import android.view.Window;
 import android.view.WindowManager;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
+import android.view.animation.Animation;
 import android.widget.AdapterView;
 import android.widget.FrameLayout;
+import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
  * Manages the lifecycle of {@link Crouton}s.
  */
-final class Manager extends Handler {
+final class Manager {
   private static final class Messages {
     private Messages() { /* no-op */ }
 
-    public static final int DISPLAY_CROUTON = 0xc2007;
     public static final int ADD_CROUTON_TO_VIEW = 0xc20074dd;
     public static final int REMOVE_CROUTON = 0xc2007de1;
+    public static final int DRAIN_HAND_OFF_QUEUE = 0xc20070d1;
+    public static final int FINISH_ANIMATION = 0xc20070f1;
+    public static final int RESUME_QUEUE = 0xc20070c1;
   }
 
-  private static Manager INSTANCE;
+  /**
+   * The states a {@link Crouton} goes through. Each transition is triggered by the {@link Crouton}'s queue, its
+   * view's layout or the end of its animations.
+   */
+  enum State {
+    /** Not known to the {@link Manager}. */
+    IDLE,
+    /** Waiting in the queue of its display target. */
+    QUEUED,
+    /** Added to its display target and waiting for the layout of its view. */
+    ATTACHING,
+    /** Running its in animation. */
+    ANIMATING_IN,
+    /** Fully visible for its {@link Configuration.Builder#setDuration(int) duration}. */
+    SHOWING,
+    /** Running its out animation, after which the next {@link Crouton} of the display target is displayed. */
+    ANIMATING_OUT
+  }
+
+  /**
+   * The time in milliseconds after an animation should have ended at which the next state is entered anyway, e.g.
+   * because the view has not been drawn and its animation did not run.
+   */
+  private static final int ANIMATION_TIMEOUT_MARGIN = 500;
+
+  /** A message for the {@link Manager}, delivered by its {@link Scheduler}. */
+  private final class Message implements Runnable {
+    final int what;
+    final int arg1;
+    final int arg2;
+    final Object obj;
+
+    Message(int what, int arg1, int arg2, Object obj) {
+      this.what = what;
+      this.arg1 = arg1;
+      this.arg2 = arg2;
+      this.obj = obj;
+    }
+
+    @Override
+    public void run() {
+      handleMessage(this);
+    }
+  }
+
+  /** Creates the instance on first use, so loading this class doesn't need the main {@link Looper}. */
+  private static final class InstanceHolder {
+    static final Manager INSTANCE = new Manager();
+  }
+
+  /**
+   * Orders {@link Crouton}s by descending priority and in order of insertion for equal priorities.
+   */
+  private static final Comparator<Crouton> PRIORITY_ORDER = new Comparator<Crouton>() {
+    @Override
+    public int compare(Crouton lhs, Crouton rhs) {
+      final int lhsPriority = lhs.getConfiguration().priority;
+      final int rhsPriority = rhs.getConfiguration().priority;
+      if (lhsPriority != rhsPriority) {
+        return lhsPriority > rhsPriority ? -1 : 1;
+      }
+      final long lhsSequenceNumber = lhs.getSequenceNumber();
+      final long rhsSequenceNumber = rhs.getSequenceNumber();
+      return lhsSequenceNumber < rhsSequenceNumber ? -1 : (lhsSequenceNumber == rhsSequenceNumber ? 0 : 1);
+    }
+  };
+
+  /** The {@link Crouton}s of a single display target. */
+  private static final class CroutonQueue {
+    /**
+     * The {@link Crouton}s waiting to be displayed, ordered by {@link #PRIORITY_ORDER}.
+     * Cancelled and {@link #isStale(Crouton) stale} {@link Crouton}s stay in here until they reach the head.
+     */
+    final Queue<Crouton> pending = new PriorityQueue<Crouton>(11, PRIORITY_ORDER);
+
+    /** The {@link Crouton}s that are currently being displayed, in order of display. */
+    final List<Crouton> displayed = new ArrayList<Crouton>(1);
+
+    /** The {@link Stacking} of the display target or <code>null</code> to display one {@link Crouton} at a time. */
+    Stacking stacking;
+
+    /** The view holding the displayed {@link Crouton}s if {@link #stacking} is set. */
+    ViewGroup stackView;
+
+    /** The {@link Crouton} that has been queued most recently, as long as it is queued or displayed. */
+    Crouton newest;
+
+    /** The {@link Crouton} deferred by the {@link RateLimit} that a {@link Messages#RESUME_QUEUE} waits for. */
+    Crouton deferred;
+
+    /** The summary {@link Crouton} of {@link QueueLimit.Policy#SUMMARIZE} and the number it counts. */
+    Crouton summary;
+    int summarizedCount;
+
+    /** The queued or displayed {@link Crouton}s by their {@link Crouton#getCollapseKey() collapse key}. */
+    final Map<Object, Crouton> collapsible = new HashMap<Object, Crouton>();
+
+    /**
+     * Forgets the collapse key of a {@link Crouton} that is leaving this queue.
+     *
+     * @param crouton
+     *     The {@link Crouton} that is leaving this queue.
+     */
+    void release(Crouton crouton) {
+      if (crouton == newest) {
+        newest = null;
+      }
+      if (crouton == summary) {
+        summary = null;
+      }
+      final Object collapseKey = crouton.getCollapseKey();
+      if ((null != collapseKey) && (crouton == collapsible.get(collapseKey))) {
+        collapsible.remove(collapseKey);
+      }
+    }
+
+    /**
+     * @return <code>true</code> if another {@link Crouton} can be displayed right away.
+     */
+    boolean hasFreeSlot() {
+      return displayed.size() < (null != stacking ? stacking.maxVisible : 1);
+    }
+
+    boolean isEmpty() {
+      return displayed.isEmpty() && pending.isEmpty();
+    }
 
-  private final Queue<Crouton> croutonQueue;
+    @Override
+    public String toString() {
+      return "CroutonQueue{" +
+          "displayed=" + displayed +
+          ", newest=" + newest +
+          ", pending=" + pending +
+          ", collapsible=" + collapsible +
+          ", stacking=" + stacking +
+          '}';
+    }
+  }
+
+  /** One queue per display target, so {@link Crouton}s for unrelated targets are displayed in parallel. */
+  private final Map<Object, CroutonQueue> croutonQueues;
+
+  /** Keeps {@link Crouton}s of equal priority in order of insertion. */
+  private long sequenceNumber;
+
+  /** Incremented by {@link #clearCroutonQueue()} to invalidate all {@link Crouton}s queued so far. */
+  private int epoch;
+
+  /** Incremented by {@link #clearCroutonsForActivity(Activity)} to invalidate the {@link Crouton}s of an activity. */
+  private final Map<Activity, Integer> activityEpochs;
+
+  /** The queued or displayed {@link Crouton}s of each {@link Activity}. */
+  private final Map<Activity, Set<Crouton>> activityCroutons;
+
+  /** The {@link Stacking} of each display target that displays several {@link Crouton}s at once. */
+  private final Map<Object, Stacking> stackings;
+
+  /** The {@link RateLimit} applied in {@link #add(Crouton)}, if any. */
+  private RateLimit rateLimit;
+
+  /** The {@link TokenBucket} for all {@link Crouton}s if the {@link #rateLimit} is not per target. */
+  private TokenBucket tokenBucket;
+
+  /** The {@link TokenBucket}s per display target if the {@link #rateLimit} is per target. */
+  private final Map<Object, TokenBucket> targetTokenBuckets;
+
+  /** The number of {@link Crouton}s that have been rejected by the {@link #rateLimit}. */
+  private volatile int rejectedCroutonCount;
+
+  /** The {@link QueueLimit} applied in {@link #enqueueCrouton(Crouton)}, if any. */
+  private QueueLimit queueLimit;
+
+  /**
+   * {@link Crouton}s to be added and {@link Cancellation}s handed over from other threads.
+   * Drained on the main thread.
+   */
+  private final Queue<Object> handOffQueue;
+
+  /** Whether a {@link Messages#DRAIN_HAND_OFF_QUEUE} message has been sent and not yet handled. */
+  private final AtomicBoolean isDrainScheduled;
+
+  /** A {@link Crouton} to be cancelled, as handed over via the {@link #handOffQueue}. */
+  private static final class Cancellation {
+    final Crouton crouton;
+
+    Cancellation(Crouton crouton) {
+      this.crouton = crouton;
+    }
+  }
+
+  /** Runs all delayed actions and provides the clock for the {@link #rateLimit}. */
+  private final Scheduler scheduler;
+
+  /** Whether {@link #prepareNextCroutons} waits for the main thread to become idle. */
+  private boolean isPreparationScheduled;
+
+  /** Prepares the next {@link Crouton}s while the main thread is idle, one per run. */
+  private final Scheduler.IdleAction prepareNextCroutons = new Scheduler.IdleAction() {
+    @Override
+    public boolean runWhenIdle() {
+      isPreparationScheduled = prepareNextCrouton();
+      return isPreparationScheduled;
+    }
+  };
+
+  private Manager() {
+    this(new HandlerScheduler(Looper.getMainLooper()));
+  }
+
+  /**
+   * @param scheduler
+   *     The {@link Scheduler} to run all delayed actions with, e.g. a {@link VirtualTimeScheduler} to simulate
+   *     {@link Crouton} traffic.
+   */
+  Manager(Scheduler scheduler) {
+    this.scheduler = scheduler;
+    croutonQueues = new HashMap<Object, CroutonQueue>();
+    activityEpochs = new WeakHashMap<Activity, Integer>();
+    activityCroutons = new HashMap<Activity, Set<Crouton>>();
+    stackings = new WeakHashMap<Object, Stacking>();
+    targetTokenBuckets = new WeakHashMap<Object, TokenBucket>();
+    handOffQueue = new ConcurrentLinkedQueue<Object>();
+    isDrainScheduled = new AtomicBoolean();
+  }
+
+  /**
+   * @return The currently used instance of the {@link Manager}.
+   */
+  static Manager getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  /**
+   * @return <code>true</code> if called on the main thread, which the {@link Manager} is bound to.
+   */
+  private boolean isMainThread() {
+    return scheduler.isSchedulerThread();
+  }
+
+  /**
+   * Hands an operation over to the main thread. All operations handed over until the main thread gets to them are
+   * processed within a single {@link Message}.
+   *
+   * @param operation
+   *     A {@link Crouton} to add or a {@link Cancellation}.
+   */
+  private void handOff(Object operation) {
+    handOffQueue.offer(operation);
+    if (isDrainScheduled.compareAndSet(false, true)) {
+      scheduler.schedule(new Message(Messages.DRAIN_HAND_OFF_QUEUE, 0, 0, null), 0);
+    }
+  }
+
+  /**
+   * Displays a {@link Crouton} that waits for its custom view to be inflated. Can be called from any thread.
+   *
+   * @param crouton
+   *     The {@link Crouton} whose custom view has been inflated.
+   */
+  void onCustomViewInflated(Crouton crouton) {
+    scheduler.schedule(new Message(Messages.RESUME_QUEUE, 0, 0, crouton), 0);
+  }
+
+  /**
+   * Processes all operations handed over from other threads in order.
+   */
+  private void drainHandOffQueue() {
+    Set<Object> targetsToDisplay = null;
+    Object operation;
+    while (null != (operation = handOffQueue.poll())) {
+      if (operation instanceof Cancellation) {
+        removeCroutonImmediately(((Cancellation) operation).crouton);
+      } else {
+        targetsToDisplay = addCrouton((Crouton) operation, targetsToDisplay);
+      }
+    }
+    displayCroutons(targetsToDisplay);
+  }
+
+  /**
+   * Sets the {@link RateLimit} for {@link #add(Crouton)}.
+   *
+   * @param rateLimit
+   *     The {@link RateLimit} or <code>null</code> to accept all {@link Crouton}s.
+   */
+  void setRateLimit(RateLimit rateLimit) {
+    this.rateLimit = rateLimit;
+    tokenBucket = null;
+    targetTokenBuckets.clear();
+  }
+
+  /**
+   * Sets the {@link QueueLimit} for the queue of each display target.
+   *
+   * @param queueLimit
+   *     The {@link QueueLimit} or <code>null</code> to queue any number of {@link Crouton}s.
+   */
+  void setQueueLimit(QueueLimit queueLimit) {
+    this.queueLimit = queueLimit;
+  }
+
+  /**
+   * Sets the {@link Stacking} of a display target. Must be called from the main thread.
+   * <p/>
+   * It applies to the {@link Crouton}s that are displayed from now on.
+   *
+   * @param target
+   *     The {@link ViewGroup} or {@link Activity} the {@link Crouton}s are displayed on.
+   * @param stacking
+   *     The {@link Stacking} or <code>null</code> to display one {@link Crouton} at a time.
+   */
+  void setStacking(Object target, Stacking stacking) {
+    if (null == stacking) {
+      stackings.remove(target);
+    } else {
+      stackings.put(target, stacking);
+    }
+    final CroutonQueue croutonQueue = croutonQueues.get(target);
+    if (null != croutonQueue) {
+      croutonQueue.stacking = stacking;
+      displayCrouton(target);
+    }
+  }
+
+  /**
+   * @return The number of {@link Crouton}s that have been dropped or coalesced due to the {@link RateLimit}.
+   */
+  int getRejectedCroutonCount() {
+    return rejectedCroutonCount;
+  }
+
+  /**
+   * Must be called from the main thread.
+   *
+   * @param activity
+   *     The {@link Activity} to count the {@link Crouton}s for.
+   *
+   * @return The number of {@link Crouton}s that are displayed or waiting to be displayed for the {@link Activity}.
+   */
+  int getCroutonCount(Activity activity) {
+    drainHandOffQueue();
+    final Set<Crouton> croutons = activityCroutons.get(activity);
+    return null != croutons ? croutons.size() : 0;
+  }
+
+  /**
+   * Inserts a {@link Crouton} to be displayed, unless it exceeds the {@link RateLimit} or is already queued or
+   * displayed. Can be called from any thread.
+   *
+   * @param crouton
+   *     The {@link Crouton} to be displayed.
+   */
+  void add(Crouton crouton) {
+    crouton.setAddTime(scheduler.uptimeMillis());
+    if (!isMainThread()) {
+      handOff(crouton);
+      return;
+    }
+    drainHandOffQueue();
+    displayCroutons(addCrouton(crouton, null));
+  }
+
+  /**
+   * Inserts several {@link Crouton}s to be displayed at once.
+   * Can be called from any thread.
+   * <p/>
+   * All {@link Crouton}s are queued before the first one is displayed, so they are displayed in order of priority
+   * and each display target is scheduled only once.
+   *
+   * @param croutons
+   *     The {@link Crouton}s to be displayed.
+   */
+  void addAll(Collection<Crouton> croutons) {
+    final long now = scheduler.uptimeMillis();
+    for (Crouton crouton : croutons) {
+      crouton.setAddTime(now);
+    }
+    if (!isMainThread()) {
+      for (Crouton crouton : croutons) {
+        handOff(crouton);
+      }
+      return;
+    }
+    drainHandOffQueue();
+    Set<Object> targetsToDisplay = null;
+    for (Crouton crouton : croutons) {
+      targetsToDisplay = addCrouton(crouton, targetsToDisplay);
+    }
+    displayCroutons(targetsToDisplay);
+  }
+
+  /**
+   * Queues a {@link Crouton}, unless it exceeds the {@link RateLimit}, without displaying it yet.
+   *
+   * @param crouton
+   *     The {@link Crouton} to be displayed.
+   * @param targetsToDisplay
+   *     The display targets that have to be scheduled so far or <code>null</code>.
+   *
+   * @return The display targets that have to be scheduled, including the one of <code>crouton</code> if necessary.
+   */
+  private Set<Object> addCrouton(Crouton crouton, Set<Object> targetsToDisplay) {
+    if ((State.IDLE != crouton.getState()) && (crouton.getEpoch() == epoch)) {
+      // Already queued or displayed, which must not be disturbed. Croutons cleared by clearCroutonQueue() are idle.
+      return targetsToDisplay;
+    }
+    crouton.setNotBefore(0);
+    crouton.setReservation(null);
+    crouton.setEpoch(epoch);
+    crouton.setActivityEpoch(getActivityEpoch(crouton.getActivity()));
+    if ((null == rateLimit) || admitCrouton(crouton)) {
+      final Object target = enqueueCrouton(crouton);
+      if (null != target) {
+        if (null == targetsToDisplay) {
+          targetsToDisplay = new LinkedHashSet<Object>();
+        }
+        targetsToDisplay.add(target);
+      }
+    }
+    return targetsToDisplay;
+  }
+
+  private int getActivityEpoch(Activity activity) {
+    final Integer activityEpoch = activityEpochs.get(activity);
+    return null != activityEpoch ? activityEpoch : 0;
+  }
+
+  /**
+   * @param crouton
+   *     A {@link Crouton} that has been added.
+   * @param now
+   *     The current time of the {@link #scheduler}.
+   *
+   * @return <code>true</code> if the {@link Crouton}'s time to live has passed, else <code>false</code>.
+   */
+  private static boolean isExpired(Crouton crouton, long now) {
+    final int timeToLive = crouton.getConfiguration().timeToLiveInMilliseconds;
+    return (Configuration.TIME_TO_LIVE_INFINITE != timeToLive) && (now - crouton.getAddTime() >= timeToLive);
+  }
+
+  /**
+   * @param crouton
+   *     A {@link Crouton} that has been added.
+   *
+   * @return <code>true</code> if all {@link Crouton}s or those of its activity have been cleared since it has been
+   * added, else <code>false</code>.
+   */
+  private boolean isStale(Crouton crouton) {
+    return (crouton.getEpoch() != epoch) || (crouton.getActivityEpoch() != getActivityEpoch(crouton.getActivity()));
+  }
+
+  /**
+   * Displays the next {@link Crouton} of each of the given display targets.
+   *
+   * @param targets
+   *     The display targets or <code>null</code>.
+   */
+  private void displayCroutons(Set<Object> targets) {
+    if (null != targets) {
+      for (Object target : targets) {
+        displayCrouton(target);
+      }
+    }
+  }
+
+  /**
+   * Applies the {@link RateLimit} to a {@link Crouton}.
+   *
+   * @param crouton
+   *     The {@link Crouton} to be displayed.
+   *
+   * @return <code>true</code> if the {@link Crouton} can be queued, possibly to be displayed later, else
+   * <code>false</code>.
+   */
+  private boolean admitCrouton(Crouton crouton) {
+    final Object target = getDisplayTarget(crouton);
+    final long now = scheduler.uptimeMillis();
+    TokenBucket bucket;
+    if (rateLimit.isPerTarget) {
+      bucket = targetTokenBuckets.get(target);
+      if (null == bucket) {
+        bucket = new TokenBucket(rateLimit, now);
+        targetTokenBuckets.put(target, bucket);
+      }
+    } else {
+      if (null == tokenBucket) {
+        tokenBucket = new TokenBucket(rateLimit, now);
+      }
+      bucket = tokenBucket;
+    }
+
+    if (RateLimit.Policy.DEFER == rateLimit.policy) {
+      final long delay = bucket.reserve(now);
+      if (delay > 0) {
+        // Waits in the queue of its target, where clearing and the QueueLimit apply to it.
+        crouton.setNotBefore(now + delay);
+        crouton.setReservation(bucket);
+      }
+      return true;
+    }
+
+    if (bucket.tryAcquire(now)) {
+      return true;
+    }
+
+    rejectedCroutonCount++;
+    final CroutonQueue croutonQueue = croutonQueues.get(target);
+    if ((RateLimit.Policy.COALESCE == rateLimit.policy) && (null != croutonQueue) && (null != croutonQueue.newest)) {
+      collapseCrouton(croutonQueue.newest, crouton);
+    } else {
+      discardCrouton(crouton);
+    }
+    return false;
+  }
+
+  /**
+   * Queues a {@link Crouton} to be displayed.
+   * <p/>
+   * A {@link Crouton} with a higher {@link Configuration.Builder#setPriority(int) priority} than the one currently
+   * displayed on the same target cuts the displayed one short.
+   * <p/>
+   * A {@link Crouton} with the same {@link Crouton#getCollapseKey() collapse key} as one that is already queued or
+   * displayed on the same target is merged into that one instead of being queued.
+   * <p/>
+   * If the queue of the target is full, the {@link QueueLimit} decides which {@link Crouton} gets dropped.
+   *
+   * @param crouton
+   *     The {@link Crouton} to be displayed.
+   *
+   * @return The display target that should display its next {@link Crouton} or <code>null</code> if nothing has to be
+   * scheduled.
+   */
+  private Object enqueueCrouton(Crouton crouton) {
+    final Object target = getDisplayTarget(crouton);
+    CroutonQueue croutonQueue = croutonQueues.get(target);
+    if (null == croutonQueue) {
+      croutonQueue = new CroutonQueue();
+      croutonQueue.stacking = stackings.get(target);
+      croutonQueues.put(target, croutonQueue);
+    }
+
+    final Object collapseKey = crouton.getCollapseKey();
+    if (null != collapseKey) {
+      final Crouton collapsed = croutonQueue.collapsible.get(collapseKey);
+      if (null != collapsed) {
+        collapseCrouton(collapsed, crouton);
+        return null;
+      }
+    }
+    if ((croutonQueue != crouton.getQueue()) && !makeRoom(croutonQueue, crouton)) {
+      return null;
+    }
+    if (null != collapseKey) {
+      croutonQueue.collapsible.put(collapseKey, crouton);
+    }
+    croutonQueue.newest = crouton;
+
+    // A Crouton that is shown again after being cancelled might still be in the queue.
+    crouton.setCancelled(false);
+    indexCrouton(crouton);
+    if (croutonQueue == crouton.getQueue()) {
+      crouton.setState(State.QUEUED);
+      return null;
+    }
+
+    insertCrouton(croutonQueue, crouton);
+    if (!croutonQueue.hasFreeSlot() && (crouton.getNotBefore() <= scheduler.uptimeMillis())) {
+      final Crouton displayed = getLowestPriorityDisplayed(croutonQueue);
+      if ((null != displayed) && (crouton.getConfiguration().priority > displayed.getConfiguration().priority)) {
+        removeCrouton(displayed);
+        return null;
+      }
+    }
+    return target;
+  }
+
+  private void indexCrouton(Crouton crouton) {
+    Set<Crouton> croutons = activityCroutons.get(crouton.getActivity());
+    if (null == croutons) {
+      croutons = new LinkedHashSet<Crouton>();
+      activityCroutons.put(crouton.getActivity(), croutons);
+    }
+    croutons.add(crouton);
+  }
+
+  private void insertCrouton(CroutonQueue croutonQueue, Crouton crouton) {
+    crouton.setSequenceNumber(sequenceNumber++);
+    crouton.setQueue(croutonQueue);
+    crouton.setState(State.QUEUED);
+    croutonQueue.pending.add(crouton);
+    // Decodes the background and lays out the text in the background while the Crouton waits for its turn.
+    crouton.precompute();
+    schedulePreparation();
+  }
+
+  /**
+   * @param croutonQueue
+   *     The queue of a display target.
+   *
+   * @return The displayed {@link Crouton} with the lowest priority that is not already being removed, the oldest one
+   * for equal priorities, or <code>null</code>.
+   */
+  private static Crouton getLowestPriorityDisplayed(CroutonQueue croutonQueue) {
+    Crouton lowest = null;
+    for (Crouton displayed : croutonQueue.displayed) {
+      if ((State.ANIMATING_OUT != displayed.getState()) &&
+          ((null == lowest) || (displayed.getConfiguration().priority < lowest.getConfiguration().priority))) {
+        lowest = displayed;
+      }
+    }
+    return lowest;
+  }
+
+  /**
+   * Applies the {@link QueueLimit} before a {@link Crouton} is queued.
+   *
+   * @param croutonQueue
+   *     The queue of the {@link Crouton}'s display target.
+   * @param crouton
+   *     The {@link Crouton} to be queued.
+   *
+   * @return <code>true</code> if the {@link Crouton} may be queued, <code>false</code> if it has been dropped or
+   * collapsed.
+   */
+  private boolean makeRoom(CroutonQueue croutonQueue, Crouton crouton) {
+    if ((null == queueLimit) || (croutonQueue.pending.size() < queueLimit.capacity)) {
+      return true;
+    }
+
+    // Cancelled, cleared and expired Croutons don't count, so get rid of them first.
+    final long now = scheduler.uptimeMillis();
+    final Iterator<Crouton> iterator = croutonQueue.pending.iterator();
+    while (iterator.hasNext()) {
+      final Crouton pending = iterator.next();
+      if (pending.isCancelled() || (null == pending.getActivity()) || isStale(pending)) {
+        iterator.remove();
+        pending.setQueue(null);
+        releaseCrouton(croutonQueue, pending);
+      } else if (isExpired(pending, now)) {
+        iterator.remove();
+        pending.setQueue(null);
+        releaseCrouton(croutonQueue, pending);
+        discardCrouton(pending);
+      }
+    }
+    if (croutonQueue.pending.size() < queueLimit.capacity) {
+      return true;
+    }
+
+    Crouton dropped = null;
+    if (QueueLimit.Policy.DROP_OLDEST == queueLimit.policy) {
+      for (Crouton pending : croutonQueue.pending) {
+        if ((null == dropped) || (pending.getSequenceNumber() < dropped.getSequenceNumber())) {
+          dropped = pending;
+        }
+      }
+    } else if (QueueLimit.Policy.DROP_LOWEST_PRIORITY == queueLimit.policy) {
+      for (Crouton pending : croutonQueue.pending) {
+        if ((null == dropped) || (PRIORITY_ORDER.compare(pending, dropped) > 0)) {
+          dropped = pending;
+        }
+      }
+      if (crouton.getConfiguration().priority <= dropped.getConfiguration().priority) {
+        dropped = null;
+      }
+    } else if (QueueLimit.Policy.SUMMARIZE == queueLimit.policy) {
+      summarizeCrouton(croutonQueue, crouton);
+      return false;
+    }
+
+    if (null == dropped) {
+      discardCrouton(crouton);
+      return false;
+    }
+    croutonQueue.pending.remove(dropped);
+    dropped.setQueue(null);
+    releaseCrouton(croutonQueue, dropped);
+    discardCrouton(dropped);
+    return true;
+  }
+
+  /**
+   * Removes a {@link Crouton} that is leaving its queue from the indices and marks it as idle, so it can be shown
+   * again.
+   *
+   * @param croutonQueue
+   *     The queue the {@link Crouton} is leaving.
+   * @param crouton
+   *     The {@link Crouton} that is leaving the queue.
+   */
+  private void releaseCrouton(CroutonQueue croutonQueue, Crouton crouton) {
+    crouton.setState(State.IDLE);
+    refundReservation(crouton);
+    croutonQueue.release(crouton);
+    final Activity activity = crouton.getActivity();
+    final Set<Crouton> croutons = activityCroutons.get(activity);
+    if ((null != croutons) && croutons.remove(crouton) && croutons.isEmpty()) {
+      activityCroutons.remove(activity);
+    }
+  }
+
+  /**
+   * Returns the token a {@link Crouton} deferred by the {@link RateLimit} has reserved, unless its time has come.
+   *
+   * @param crouton
+   *     The {@link Crouton} that won't be displayed or is displayed now.
+   */
+  private void refundReservation(Crouton crouton) {
+    final TokenBucket bucket = (TokenBucket) crouton.getReservation();
+    // The tokens of Croutons cleared by clearCroutonQueue() have been refunded at once.
+    if ((null != bucket) && (crouton.getEpoch() == epoch)) {
+      final long now = scheduler.uptimeMillis();
+      if (crouton.getNotBefore() > now) {
+        bucket.refund(now);
+      }
+    }
+    crouton.setReservation(null);
+  }
+
+  /**
+   * Merges a {@link Crouton} into an equal one that is already queued or displayed.
+   *
+   * @param collapsed
+   *     The queued or displayed {@link Crouton}.
+   * @param crouton
+   *     The {@link Crouton} that is merged into <code>collapsed</code> and won't be displayed.
+   */
+  private void collapseCrouton(Crouton collapsed, Crouton crouton) {
+    collapsed.incrementRepeatCount();
+    discardCrouton(crouton);
+
+    // Restart the display duration if the Crouton is already showing.
+    final int duration = collapsed.getConfiguration().durationInMilliseconds;
+    if ((State.SHOWING == collapsed.getState()) && (Configuration.DURATION_INFINITE != duration)) {
+      collapsed.invalidateMessages();
+      sendMessageDelayed(collapsed, Messages.REMOVE_CROUTON, duration);
+    }
+  }
+
+  /**
+   * Drops a {@link Crouton} that doesn't fit into its full queue and counts it by the summary {@link Crouton} of the
+   * queue. A new summary is queued unless the previous one is still waiting to be displayed.
+   *
+   * @param croutonQueue
+   *     The full queue.
+   * @param crouton
+   *     The {@link Crouton} that won't be displayed.
+   */
+  private void summarizeCrouton(CroutonQueue croutonQueue, Crouton crouton) {
+    final Activity activity = crouton.getActivity();
+    final ViewGroup viewGroup = crouton.getViewGroup();
+    final Style style = crouton.getStyle();
+    discardCrouton(crouton);
+
+    final Crouton summary = croutonQueue.summary;
+    if ((null != summary) && (croutonQueue == summary.getQueue()) && !summary.isCancelled() && !isStale(summary)) {
+      croutonQueue.summarizedCount++;
+      summary.setText(String.format(queueLimit.summaryFormat, croutonQueue.summarizedCount));
+      return;
+    }
 
-  private Manager() {
-    croutonQueue = new LinkedBlockingQueue<Crouton>();
+    // Queued beyond the capacity, so it isn't dropped itself.
+    croutonQueue.summarizedCount = 1;
+    croutonQueue.summary = Crouton.makeText(activity, String.format(queueLimit.summaryFormat, 1), style, viewGroup)
+        .setConfiguration(Configuration.DEFAULT);
+    croutonQueue.summary.setAddTime(scheduler.uptimeMillis());
+    croutonQueue.summary.setEpoch(epoch);
+    croutonQueue.summary.setActivityEpoch(getActivityEpoch(activity));
+    indexCrouton(croutonQueue.summary);
+    insertCrouton(croutonQueue, croutonQueue.summary);
   }
 
   /**
-   * @return The currently used instance of the {@link Manager}.
+   * Drops a {@link Crouton} that has never been displayed.
+   *
+   * @param crouton
+   *     The {@link Crouton} that won't be displayed.
    */
-  static synchronized Manager getInstance() {
-    if (null == INSTANCE) {
-      INSTANCE = new Manager();
+  private static void discardCrouton(Crouton crouton) {
+    crouton.detachActivity();
+    crouton.detachViewGroup();
+    if (null != crouton.getLifecycleCallback()) {
+      crouton.getLifecycleCallback().onRemoved();
     }
-
-    return INSTANCE;
+    crouton.detachLifecycleCallback();
   }
 
   /**
-   * Inserts a {@link Crouton} to be displayed.
-   *
    * @param crouton
-   *     The {@link Crouton} to be displayed.
+   *     The {@link Crouton} to get the display target for.
+   *
+   * @return The {@link ViewGroup} the {@link Crouton} is displayed in or its {@link Activity}, if none has been
+   * supplied.
    */
-  void add(Crouton crouton) {
-    croutonQueue.add(crouton);
-    displayCrouton();
+  private static Object getDisplayTarget(Crouton crouton) {
+    if (null != crouton.getViewGroup()) {
+      return crouton.getViewGroup();
+    }
+    return crouton.getActivity();
   }
 
   /**
-   * Displays the next {@link Crouton} within the queue.
+   * Displays the next {@link Crouton}s within the queue of a display target, as long as it has free slots.
+   *
+   * @param target
+   *     The display target as provided by {@link #getDisplayTarget(Crouton)}.
    */
-  private void displayCrouton() {
-    if (croutonQueue.isEmpty()) {
+  private void displayCrouton(Object target) {
+    final CroutonQueue croutonQueue = croutonQueues.get(target);
+    if (null == croutonQueue) {
       return;
     }
 
-    // First peek whether the Crouton has an activity.
-    final Crouton currentCrouton = croutonQueue.peek();
+    // The next Crouton is displayed once a displayed one has been removed.
+    final long now = scheduler.uptimeMillis();
+    while (croutonQueue.hasFreeSlot()) {
+      // Skip Croutons that have been cancelled, cleared or lost their activity in the meantime.
+      Crouton currentCrouton = pollPending(croutonQueue);
+      while (null != currentCrouton) {
+        if (currentCrouton.isCancelled() || (null == currentCrouton.getActivity()) || isStale(currentCrouton)) {
+          releaseCrouton(croutonQueue, currentCrouton);
+        } else if (isExpired(currentCrouton, now)) {
+          // Expired Croutons are dropped before their view is ever built.
+          releaseCrouton(croutonQueue, currentCrouton);
+          discardCrouton(currentCrouton);
+        } else {
+          break;
+        }
+        currentCrouton = pollPending(croutonQueue);
+      }
 
-    // If the activity is null we poll the Crouton off the queue.
-    if (null == currentCrouton.getActivity()) {
-      croutonQueue.poll();
-    }
+      if (null == currentCrouton) {
+        if (croutonQueue.isEmpty()) {
+          croutonQueues.remove(target);
+        }
+        return;
+      }
+      if (!currentCrouton.isViewReady()) {
+        // Keeps its place until its custom view has been inflated, see RESUME_QUEUE.
+        currentCrouton.setQueue(croutonQueue);
+        croutonQueue.pending.add(currentCrouton);
+        return;
+      }
+      if (currentCrouton.getNotBefore() > now) {
+        // Keeps its place until the RateLimit allows it.
+        currentCrouton.setQueue(croutonQueue);
+        croutonQueue.pending.add(currentCrouton);
+        if (croutonQueue.deferred != currentCrouton) {
+          croutonQueue.deferred = currentCrouton;
+          scheduler.schedule(new Message(Messages.RESUME_QUEUE, 0, 0, currentCrouton),
+              currentCrouton.getNotBefore() - now);
+        }
+        return;
+      }
 
-    if (!currentCrouton.isShowing()) {
       // Display the Crouton
+      currentCrouton.setReservation(null);
+      croutonQueue.displayed.add(currentCrouton);
+      currentCrouton.setState(State.ATTACHING);
       sendMessage(currentCrouton, Messages.ADD_CROUTON_TO_VIEW);
       if (null != currentCrouton.getLifecycleCallback()) {
         currentCrouton.getLifecycleCallback().onDisplayed();
       }
-    } else {
-      sendMessageDelayed(currentCrouton, Messages.DISPLAY_CROUTON, calculateCroutonDuration(currentCrouton));
+      if (!croutonQueue.pending.isEmpty()) {
+        schedulePreparation();
+      }
+    }
+  }
+
+  private void schedulePreparation() {
+    if (!isPreparationScheduled) {
+      isPreparationScheduled = true;
+      scheduler.scheduleWhenIdle(prepareNextCroutons);
+    }
+  }
+
+  /**
+   * Prepares the {@link Crouton} to be displayed next on a display target that is busy displaying others, so it is
+   * built, measured and has its animations resolved by the time it is displayed.
+   *
+   * @return <code>true</code> if a {@link Crouton} has been prepared and there might be more, <code>false</code> if
+   * there is nothing left to prepare.
+   */
+  private boolean prepareNextCrouton() {
+    final long now = scheduler.uptimeMillis();
+    for (CroutonQueue croutonQueue : croutonQueues.values()) {
+      final Crouton next = croutonQueue.pending.peek();
+      if ((null != next) && !croutonQueue.displayed.isEmpty() && !next.isPrepared() && next.isViewReady() &&
+          !next.isCancelled() && (null != next.getActivity()) && !isStale(next) && !isExpired(next, now)) {
+        next.prepare();
+        return true;
+      }
     }
+    return false;
   }
 
-  private long calculateCroutonDuration(Crouton crouton) {
-    long croutonDuration = crouton.getConfiguration().durationInMilliseconds;
-    croutonDuration += crouton.getInAnimation().getDuration();
-    croutonDuration += crouton.getOutAnimation().getDuration();
-    return croutonDuration;
+  private static Crouton pollPending(CroutonQueue croutonQueue) {
+    final Crouton crouton = croutonQueue.pending.poll();
+    if (null != crouton) {
+      crouton.setQueue(null);
+    }
+    return crouton;
   }
 
   /**
@@ -124,13 +979,14 @@ final class Manager extends Handler {
    *     The {@link Message} id.
    */
   private void sendMessage(Crouton crouton, final int messageId) {
-    final Message message = obtainMessage(messageId);
-    message.obj = crouton;
-    sendMessage(message);
+    sendMessageDelayed(crouton, messageId, 0);
   }
 
   /**
    * Sends a {@link Crouton} within a delayed {@link Message}.
+   * <p/>
+   * The {@link Message} carries the {@link Crouton#getMessageToken() message token} of the {@link Crouton} and is
+   * ignored if the token has changed by the time it is handled.
    *
    * @param crouton
    *     The {@link Crouton} that should be sent.
@@ -140,28 +996,160 @@ final class Manager extends Handler {
    *     The delay in milliseconds.
    */
   private void sendMessageDelayed(Crouton crouton, final int messageId, final long delay) {
-    Message message = obtainMessage(messageId);
-    message.obj = crouton;
-    sendMessageDelayed(message, delay);
+    scheduler.schedule(new Message(messageId, crouton.getMessageToken(), 0, crouton), delay);
   }
 
-  /*
-   * (non-Javadoc)
+  /**
+   * Sends a {@link Messages#FINISH_ANIMATION} message for the current state of a {@link Crouton}.
    *
-   * @see android.os.Handler#handleMessage(android.os.Message)
+   * @param crouton
+   *     The animating {@link Crouton}.
+   * @param delay
+   *     The delay in milliseconds.
    */
-  @Override
-  public void handleMessage(Message message) {
-    final Crouton crouton = (Crouton) message.obj;
-    if (null == crouton) {
+  private void sendFinishAnimationMessageDelayed(Crouton crouton, final long delay) {
+    final Message message =
+        new Message(Messages.FINISH_ANIMATION, crouton.getMessageToken(), crouton.getState().ordinal(), crouton);
+    scheduler.schedule(message, delay);
+  }
+
+  /**
+   * Reports the end of an animation of a {@link Crouton} via a {@link Messages#FINISH_ANIMATION} message, so views
+   * are not changed while they are being drawn.
+   */
+  private final class FinishAnimationListener implements Animation.AnimationListener {
+    private final Crouton crouton;
+
+    FinishAnimationListener(Crouton crouton) {
+      this.crouton = crouton;
+    }
+
+    @Override
+    public void onAnimationStart(Animation animation) {
+      /* no-op */
+    }
+
+    @Override
+    public void onAnimationEnd(Animation animation) {
+      sendFinishAnimationMessageDelayed(crouton, 0);
+    }
+
+    @Override
+    public void onAnimationRepeat(Animation animation) {
+      /* no-op */
+    }
+  }
+
+  /**
+   * Starts an animation of a {@link Crouton} and enters the given state until it ends.
+   *
+   * @param crouton
+   *     The {@link Crouton} to animate.
+   * @param state
+   *     Either {@link State#ANIMATING_IN} or {@link State#ANIMATING_OUT}.
+   * @param animation
+   *     The animation to start.
+   */
+  private void startAnimation(Crouton crouton, State state, Animation animation) {
+    crouton.setState(state);
+    animation.setAnimationListener(new FinishAnimationListener(crouton));
+    crouton.getView().startAnimation(animation);
+    // Fall back in case the animation never ends, e.g. because the view is not drawn.
+    sendFinishAnimationMessageDelayed(crouton,
+        animation.getStartOffset() + animation.getDuration() + ANIMATION_TIMEOUT_MARGIN);
+  }
+
+  /**
+   * Enters the state following the animation that has ended.
+   *
+   * @param crouton
+   *     The {@link Crouton} whose animation has ended.
+   */
+  private void finishAnimation(Crouton crouton) {
+    if (State.ANIMATING_IN == crouton.getState()) {
+      showCrouton(crouton);
+    } else if (State.ANIMATING_OUT == crouton.getState()) {
+      finishRemoval(crouton);
+    }
+  }
+
+  /**
+   * Keeps a {@link Crouton} fully visible for its duration.
+   *
+   * @param crouton
+   *     The {@link Crouton} that has been animated in.
+   */
+  private void showCrouton(Crouton crouton) {
+    crouton.setState(State.SHOWING);
+    if (Configuration.DURATION_INFINITE != crouton.getConfiguration().durationInMilliseconds) {
+      sendMessageDelayed(crouton, Messages.REMOVE_CROUTON, crouton.getConfiguration().durationInMilliseconds);
+    }
+  }
+
+  /**
+   * Removes the view of a {@link Crouton} that has been animated out and displays the next {@link Crouton} of its
+   * display target.
+   *
+   * @param crouton
+   *     The {@link Crouton} that has been animated out.
+   */
+  private void finishRemoval(Crouton crouton) {
+    crouton.setState(State.IDLE);
+    final Object target = getDisplayTarget(crouton);
+    final CroutonQueue croutonQueue = croutonQueues.get(target);
+
+    // Remove the crouton from the view's parent.
+    removeCroutonFromViewParent(crouton);
+    if ((null != croutonQueue) && croutonQueue.displayed.remove(crouton)) {
+      releaseCrouton(croutonQueue, crouton);
+    }
+    crouton.recycleView();
+    crouton.detachActivity();
+    crouton.detachViewGroup();
+    if (null != crouton.getLifecycleCallback()) {
+      crouton.getLifecycleCallback().onRemoved();
+    }
+    crouton.detachLifecycleCallback();
+
+    if (null != croutonQueue) {
+      displayCrouton(target);
+    }
+  }
+
+  /**
+   * Handles a {@link Message} delivered by the {@link #scheduler}.
+   *
+   * @param message
+   *     The {@link Message} to handle.
+   */
+  private void handleMessage(Message message) {
+    if (Messages.DRAIN_HAND_OFF_QUEUE == message.what) {
+      // Operations handed over from now on need another message.
+      isDrainScheduled.set(false);
+      drainHandOffQueue();
       return;
     }
-    switch (message.what) {
-      case Messages.DISPLAY_CROUTON: {
-        displayCrouton();
-        break;
+    if (Messages.RESUME_QUEUE == message.what) {
+      // Only a Crouton that is still queued is waiting for its view or the RateLimit.
+      final Crouton waiting = (Crouton) message.obj;
+      final CroutonQueue croutonQueue = (CroutonQueue) waiting.getQueue();
+      if (null != croutonQueue) {
+        if (waiting == croutonQueue.deferred) {
+          croutonQueue.deferred = null;
+        }
+        if (null != waiting.getActivity()) {
+          displayCrouton(getDisplayTarget(waiting));
+        }
       }
+      return;
+    }
 
+    final Crouton crouton = (Crouton) message.obj;
+    // Messages for cancelled, cleared or removed Croutons are ignored instead of being searched out.
+    if ((null == crouton) || (message.arg1 != crouton.getMessageToken()) || isStale(crouton)) {
+      return;
+    }
+    switch (message.what) {
       case Messages.ADD_CROUTON_TO_VIEW: {
         addCroutonToView(crouton);
         break;
@@ -169,14 +1157,18 @@ final class Manager extends Handler {
 
       case Messages.REMOVE_CROUTON: {
         removeCrouton(crouton);
-        if (null != crouton.getLifecycleCallback()) {
-          crouton.getLifecycleCallback().onRemoved();
+        break;
+      }
+
+      case Messages.FINISH_ANIMATION: {
+        // Either the animation has ended or its timeout has passed, whichever came first.
+        if (message.arg2 == crouton.getState().ordinal()) {
+          finishAnimation(crouton);
         }
         break;
       }
 
       default: {
-        super.handleMessage(message);
         break;
       }
     }
@@ -184,6 +1176,10 @@ final class Manager extends Handler {
 
   /**
    * Adds a {@link Crouton} to the {@link ViewParent} of it's {@link Activity}.
+   * <p/>
+   * If the {@link Scheduler} observes frames, as of Jelly Bean, the view is attached and its in animation started at
+   * the beginning of the next frame, so the first frame of the animation is drawn within that frame. Otherwise the
+   * animation is started once the view has been laid out.
    *
    * @param crouton
    *     The {@link Crouton} that should be added.
@@ -194,33 +1190,14 @@ final class Manager extends Handler {
       return;
     }
 
-    final View croutonView = crouton.getView();
-    if (null == croutonView.getParent()) {
-      ViewGroup.LayoutParams params = croutonView.getLayoutParams();
-      if (null == params) {
-        params =
-            new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-      }
-      // display Crouton in ViewGroup if it has been supplied
-      if (null != crouton.getViewGroup()) {
-        final ViewGroup croutonViewGroup = crouton.getViewGroup();
-        if (shouldAddViewWithoutPosition(croutonViewGroup)) {
-          croutonViewGroup.addView(croutonView, params);
-        } else {
-          croutonViewGroup.addView(croutonView, 0, params);
-        }
-      } else {
-        Activity activity = crouton.getActivity();
-        if (null == activity || activity.isFinishing()) {
-          return;
-        }
-        handleTranslucentActionBar((ViewGroup.MarginLayoutParams) params, activity);
-        handleActionBarOverlay((ViewGroup.MarginLayoutParams) params, activity);
-
-        activity.addContentView(croutonView, params);
-      }
+    if (scheduler.scheduleOnNextFrame(new FrameAlignedAttach(this, crouton))) {
+      return;
     }
 
+    if (!attachCroutonView(crouton)) {
+      return;
+    }
+    final View croutonView = crouton.getView();
     croutonView.requestLayout(); // This is needed so the animation can use the measured with/height
     ViewTreeObserver observer = croutonView.getViewTreeObserver();
     if (null != observer) {
@@ -234,19 +1211,213 @@ final class Manager extends Handler {
             croutonView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
           }
 
-          if(crouton.getInAnimation() != null) {
-            croutonView.startAnimation(crouton.getInAnimation());
-            announceForAccessibilityCompat(crouton.getActivity(), crouton.getText());
-            if (Configuration.DURATION_INFINITE != crouton.getConfiguration().durationInMilliseconds) {
-              sendMessageDelayed(crouton, Messages.REMOVE_CROUTON,
-                  crouton.getConfiguration().durationInMilliseconds + crouton.getInAnimation().getDuration());
-            }
+          // The Crouton might have been removed before its view has been laid out.
+          if ((State.ATTACHING != crouton.getState()) || isStale(crouton)) {
+            return;
           }
+          startInAnimation(crouton);
         }
       });
     }
   }
 
+  /**
+   * Attaches the view of a {@link Crouton} and starts its in animation at the beginning of a frame.
+   */
+  private static final class FrameAlignedAttach implements Runnable {
+    private final Manager manager;
+    private final Crouton crouton;
+    private final int messageToken;
+
+    private FrameAlignedAttach(Manager manager, Crouton crouton) {
+      this.manager = manager;
+      this.crouton = crouton;
+      this.messageToken = crouton.getMessageToken();
+    }
+
+    @Override
+    public void run() {
+      // The Crouton might have been removed while waiting for the frame.
+      if ((messageToken != crouton.getMessageToken()) || (State.ATTACHING != crouton.getState()) ||
+          manager.isStale(crouton) || crouton.isShowing()) {
+        return;
+      }
+      // The view is measured and laid out in the traversal of this very frame, which also draws the first frame of
+      // the animation.
+      if (manager.attachCroutonView(crouton)) {
+        manager.startInAnimation(crouton);
+      }
+    }
+  }
+
+  /**
+   * Adds the view of a {@link Crouton} to its display target, or gives way to the next {@link Crouton} if that is
+   * not possible any more.
+   *
+   * @param crouton
+   *     The {@link Crouton} that should be added.
+   *
+   * @return <code>true</code> if the view has been added or already was, else <code>false</code>.
+   */
+  private boolean attachCroutonView(final Crouton crouton) {
+    final View croutonView = crouton.getView();
+    if (null == croutonView.getParent()) {
+      ViewGroup.LayoutParams params = croutonView.getLayoutParams();
+      if (null == params) {
+        params =
+            new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+      }
+      final Object target = getDisplayTarget(crouton);
+      final CroutonQueue croutonQueue = croutonQueues.get(target);
+      final boolean isAdded;
+      if ((null != croutonQueue) && (null != croutonQueue.stacking)) {
+        isAdded = addViewToStack(crouton, croutonQueue, croutonView, params);
+      } else {
+        isAdded = addViewToTarget(crouton, croutonView, params);
+      }
+      if (!isAdded) {
+        // Give way to the next Crouton of this target.
+        crouton.setState(State.IDLE);
+        if ((null != croutonQueue) && croutonQueue.displayed.remove(crouton)) {
+          releaseCrouton(croutonQueue, crouton);
+          displayCrouton(target);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Starts the in animation of a {@link Crouton} whose view has been attached.
+   *
+   * @param crouton
+   *     The attached {@link Crouton}.
+   */
+  private void startInAnimation(Crouton crouton) {
+    final Animation inAnimation = crouton.getInAnimation();
+    if (null != inAnimation) {
+      announceForAccessibilityCompat(crouton.getActivity(), crouton.getText());
+      startAnimation(crouton, State.ANIMATING_IN, inAnimation);
+    } else {
+      showCrouton(crouton);
+    }
+  }
+
+  /**
+   * Adds a view to the display target of a {@link Crouton}.
+   *
+   * @param crouton
+   *     The {@link Crouton} whose display target the view is added to.
+   * @param view
+   *     The view of the {@link Crouton} or the stack holding it.
+   * @param params
+   *     The layout parameters of the view.
+   *
+   * @return <code>false</code> if the {@link Crouton}'s {@link Activity} is gone or finishing, else
+   * <code>true</code>.
+   */
+  private boolean addViewToTarget(Crouton crouton, View view, ViewGroup.LayoutParams params) {
+    // display Crouton in ViewGroup if it has been supplied
+    if (null != crouton.getViewGroup()) {
+      final ViewGroup croutonViewGroup = crouton.getViewGroup();
+      if (shouldAddViewWithoutPosition(croutonViewGroup)) {
+        croutonViewGroup.addView(view, params);
+      } else {
+        croutonViewGroup.addView(view, 0, params);
+      }
+      return true;
+    }
+
+    Activity activity = crouton.getActivity();
+    if (null == activity || activity.isFinishing()) {
+      return false;
+    }
+    handleTranslucentActionBar((ViewGroup.MarginLayoutParams) params, activity);
+    handleActionBarOverlay((ViewGroup.MarginLayoutParams) params, activity);
+
+    activity.addContentView(view, params);
+    return true;
+  }
+
+  /**
+   * Adds the view of a {@link Crouton} to the stack of its display target, adding the stack first if necessary.
+   *
+   * @param crouton
+   *     The {@link Crouton} that should be added.
+   * @param croutonQueue
+   *     The queue of the {@link Crouton}'s display target, which has a {@link Stacking}.
+   * @param croutonView
+   *     The view of the {@link Crouton}.
+   * @param params
+   *     The layout parameters of the view.
+   *
+   * @return <code>false</code> if the {@link Crouton}'s {@link Activity} is gone or finishing, else
+   * <code>true</code>.
+   */
+  private boolean addViewToStack(Crouton crouton, CroutonQueue croutonQueue, View croutonView,
+                                 ViewGroup.LayoutParams params) {
+    if ((null == croutonQueue.stackView) || (null == croutonQueue.stackView.getParent())) {
+      if (null == crouton.getActivity()) {
+        return false;
+      }
+      final ViewGroup stackView = createStackView(crouton.getActivity());
+      final ViewGroup.MarginLayoutParams stackParams =
+          new ViewGroup.MarginLayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+      if (!addViewToTarget(crouton, stackView, stackParams)) {
+        return false;
+      }
+      croutonQueue.stackView = stackView;
+    }
+
+    if (croutonQueue.stacking.isNewestOnTop) {
+      croutonQueue.stackView.addView(croutonView, 0, params);
+    } else {
+      croutonQueue.stackView.addView(croutonView, params);
+    }
+    return true;
+  }
+
+  /**
+   * Creates the view holding the stacked {@link Crouton}s of a display target. It removes itself from its parent once
+   * its last {@link Crouton} has been removed.
+   *
+   * @param context
+   *     The {@link Context} to create the view with.
+   *
+   * @return The created view.
+   */
+  @TargetApi(11)
+  private static ViewGroup createStackView(Context context) {
+    final LinearLayout stackView = new LinearLayout(context);
+    stackView.setOrientation(LinearLayout.VERTICAL);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+      // Each Crouton animates itself in and out, the others only move to make room or close the gap.
+      final LayoutTransition layoutTransition = new LayoutTransition();
+      layoutTransition.setAnimator(LayoutTransition.APPEARING, null);
+      layoutTransition.setAnimator(LayoutTransition.DISAPPEARING, null);
+      stackView.setLayoutTransition(layoutTransition);
+    }
+    stackView.setOnHierarchyChangeListener(REMOVE_STACK_WHEN_EMPTY);
+    return stackView;
+  }
+
+  private static final ViewGroup.OnHierarchyChangeListener REMOVE_STACK_WHEN_EMPTY =
+      new ViewGroup.OnHierarchyChangeListener() {
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+          /* no-op */
+        }
+
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+          final ViewGroup stackView = (ViewGroup) parent;
+          if ((0 == stackView.getChildCount()) && (stackView.getParent() instanceof ViewGroup)) {
+            ((ViewGroup) stackView.getParent()).removeView(stackView);
+          }
+        }
+      };
+
   private boolean shouldAddViewWithoutPosition(ViewGroup croutonViewGroup) {
     return croutonViewGroup instanceof FrameLayout || croutonViewGroup instanceof AdapterView ||
         croutonViewGroup instanceof RelativeLayout;
@@ -284,120 +1455,194 @@ final class Manager extends Handler {
     }
   }
 
+  /**
+   * Hides a {@link Crouton} on request of the app. Must be called from the main thread.
+   *
+   * @param crouton
+   *     The {@link Crouton} that should be removed.
+   */
+  void hide(Crouton crouton) {
+    // A Crouton shown from another thread has to be queued before it can be hidden.
+    drainHandOffQueue();
+    removeCrouton(crouton);
+  }
+
   /**
    * Removes the {@link Crouton}'s view after it's display
    * durationInMilliseconds.
+   * <p/>
+   * A {@link Crouton} that is being shown is animated out first. Its view is removed and the next {@link Crouton}
+   * is displayed once the out animation has ended. A queued {@link Crouton} is dropped before it is displayed.
    *
    * @param crouton
    *     The {@link Crouton} added to a {@link ViewGroup} and should be
    *     removed.
    */
   protected void removeCrouton(Crouton crouton) {
+    if (State.ANIMATING_OUT == crouton.getState()) {
+      return;
+    }
+
     // If the crouton hasn't been displayed yet a `Crouton.hide()` will fail to hide
-    // it since the DISPLAY message might still be in the queue. Remove all messages
+    // it since the DISPLAY message might still be in the queue. Invalidate all messages
     // for this crouton.
-    removeAllMessagesForCrouton(crouton);
+    crouton.invalidateMessages();
 
-    View croutonView = crouton.getView();
-    ViewGroup croutonParentView = (ViewGroup) croutonView.getParent();
+    final Object target = getDisplayTarget(crouton);
+    final CroutonQueue croutonQueue = croutonQueues.get(target);
+    final boolean isDisplayed = (null != croutonQueue) && croutonQueue.displayed.contains(crouton);
 
-    if (null != croutonParentView) {
-      croutonView.startAnimation(crouton.getOutAnimation());
-
-      // Remove the Crouton from the queue.
-      Crouton removed = croutonQueue.poll();
-
-      // Remove the crouton from the view's parent.
-      croutonParentView.removeView(croutonView);
-      if (null != removed) {
-        removed.detachActivity();
-        removed.detachViewGroup();
-        if (null != removed.getLifecycleCallback()) {
-          removed.getLifecycleCallback().onRemoved();
-        }
-        removed.detachLifecycleCallback();
+    if (crouton.isShowing()) {
+      // Nothing is collapsed into a Crouton that is on its way out.
+      if (isDisplayed) {
+        croutonQueue.release(crouton);
       }
+      startAnimation(crouton, State.ANIMATING_OUT, crouton.getOutAnimation());
+    } else if (isDisplayed) {
+      // The Crouton has not been added to its view yet, so the next one can take its place right away.
+      crouton.setState(State.IDLE);
+      croutonQueue.displayed.remove(crouton);
+      releaseCrouton(croutonQueue, crouton);
+      crouton.recycleView();
+      crouton.detachActivity();
+      crouton.detachViewGroup();
+      if (null != crouton.getLifecycleCallback()) {
+        crouton.getLifecycleCallback().onRemoved();
+      }
+      crouton.detachLifecycleCallback();
+      displayCrouton(target);
+    } else if ((null != croutonQueue) && (croutonQueue == crouton.getQueue())) {
+      releaseCrouton(croutonQueue, crouton);
+      crouton.setCancelled(true);
+    }
+  }
 
-      // Send a message to display the next crouton but delay it by the out
-      // animation duration to make sure it finishes
-      sendMessageDelayed(crouton, Messages.DISPLAY_CROUTON, crouton.getOutAnimation().getDuration());
+  /**
+   * Removes a {@link Crouton} immediately, even when it's currently being
+   * displayed. Can be called from any thread.
+   *
+   * @param crouton
+   *     The {@link Crouton} that should be removed.
+   */
+  void cancel(Crouton crouton) {
+    if (!isMainThread()) {
+      handOff(new Cancellation(crouton));
+      return;
     }
+    drainHandOffQueue();
+    removeCroutonImmediately(crouton);
   }
 
   /**
    * Removes a {@link Crouton} immediately, even when it's currently being
    * displayed.
+   * <p/>
+   * This takes constant time: pending messages for the {@link Crouton} are ignored once they are handled and a
+   * queued {@link Crouton} is dropped once it reaches the head of its queue.
    *
    * @param crouton
    *     The {@link Crouton} that should be removed.
    */
-  void removeCroutonImmediately(Crouton crouton) {
+  private void removeCroutonImmediately(Crouton crouton) {
     // if Crouton has already been displayed then it may not be in the queue (because it was popped).
-    // This ensures the displayed Crouton is removed from its parent immediately, whether another instance
-    // of it exists in the queue or not.
-    // Note: crouton.isShowing() is false here even if it really is showing, as croutonView object in
-    // Crouton seems to be out of sync with reality!
-    if (null != crouton.getActivity() && null != crouton.getView() && null != crouton.getView().getParent()) {
-      ((ViewGroup) crouton.getView().getParent()).removeView(crouton.getView());
-
-      // remove any messages pending for the crouton
-      removeAllMessagesForCrouton(crouton);
-    }
-    // remove any matching croutons from queue
-    final Iterator<Crouton> croutonIterator = croutonQueue.iterator();
-    while (croutonIterator.hasNext()) {
-      final Crouton c = croutonIterator.next();
-      if (c.equals(crouton) && (null != c.getActivity())) {
-        // remove the crouton from the content view
-        removeCroutonFromViewParent(crouton);
-
-        // remove any messages pending for the crouton
-        removeAllMessagesForCrouton(c);
+    // This ensures the displayed Crouton is removed from its parent immediately.
+    removeCroutonFromViewParent(crouton);
+    crouton.recycleView();
 
-        // remove the crouton from the queue
-        croutonIterator.remove();
+    // ignore any messages pending for the crouton
+    crouton.invalidateMessages();
+    crouton.setState(State.IDLE);
 
-        // we have found our crouton so just break
-        break;
-      }
+    final Object target = getDisplayTarget(crouton);
+    final CroutonQueue croutonQueue = croutonQueues.get(target);
+    if (null == croutonQueue) {
+      return;
+    }
+    releaseCrouton(croutonQueue, crouton);
+    if (croutonQueue.displayed.remove(crouton)) {
+      displayCrouton(target);
+    } else if (croutonQueue == crouton.getQueue()) {
+      crouton.setCancelled(true);
     }
   }
 
   /**
    * Removes all {@link Crouton}s from the queue.
+   * <p/>
+   * Pending messages are invalidated at once and ignored when they are handled. Queued {@link Crouton}s aren't
+   * visited: they count as idle from now on and the tokens reserved for them are refunded per {@link TokenBucket}.
    */
   void clearCroutonQueue() {
-    removeAllMessages();
+    epoch++;
+    handOffQueue.clear();
+    activityCroutons.clear();
+    CroutonViewPool.clear();
+
+    final long now = scheduler.uptimeMillis();
+    if (null != tokenBucket) {
+      tokenBucket.refundAll(now);
+    }
 
     // remove any views that may already have been added to the activity's
     // content view
-    for (Crouton crouton : croutonQueue) {
-      removeCroutonFromViewParent(crouton);
+    for (Map.Entry<Object, CroutonQueue> entry : croutonQueues.entrySet()) {
+      final TokenBucket targetTokenBucket = targetTokenBuckets.get(entry.getKey());
+      if (null != targetTokenBucket) {
+        targetTokenBucket.refundAll(now);
+      }
+      for (Crouton displayed : entry.getValue().displayed) {
+        removeCroutonFromViewParent(displayed);
+        displayed.setState(State.IDLE);
+      }
     }
-    croutonQueue.clear();
+    croutonQueues.clear();
   }
 
   /**
    * Removes all {@link Crouton}s for the provided activity. This will remove
    * crouton from {@link Activity}s content view immediately.
+   * <p/>
+   * Queued {@link Crouton}s and pending messages of the activity are invalidated at once. Queued {@link Crouton}s
+   * are dropped once they reach the head of their queue. Only the {@link Crouton}s of the activity are visited.
    */
   void clearCroutonsForActivity(Activity activity) {
-    Iterator<Crouton> croutonIterator = croutonQueue.iterator();
-    while (croutonIterator.hasNext()) {
-      Crouton crouton = croutonIterator.next();
-      if ((null != crouton.getActivity()) && crouton.getActivity().equals(activity)) {
+    // Croutons shown from other threads so far are cleared as well.
+    drainHandOffQueue();
+    activityEpochs.put(activity, getActivityEpoch(activity) + 1);
+    // The pooled views hold on to the activity.
+    CroutonViewPool.clear(activity);
+    final Set<Crouton> croutons = activityCroutons.remove(activity);
+    if (null == croutons) {
+      return;
+    }
+
+    Set<Object> targetsToDisplay = null;
+    for (Crouton crouton : croutons) {
+      final Object target = getDisplayTarget(crouton);
+      final CroutonQueue croutonQueue = croutonQueues.get(target);
+      if ((null != croutonQueue) && croutonQueue.displayed.remove(crouton)) {
         // remove the crouton from the content view
         removeCroutonFromViewParent(crouton);
-
-        removeAllMessagesForCrouton(crouton);
-
-        // remove the crouton from the queue
-        croutonIterator.remove();
+        crouton.setState(State.IDLE);
+        croutonQueue.release(crouton);
+        if (null == targetsToDisplay) {
+          targetsToDisplay = new LinkedHashSet<Object>();
+        }
+        targetsToDisplay.add(target);
+      } else if ((null != croutonQueue) && (croutonQueue == crouton.getQueue())) {
+        // The queued Crouton is dropped once it reaches the head of its queue, but it may be shown again right away.
+        croutonQueue.release(crouton);
+        refundReservation(crouton);
+        crouton.setState(State.IDLE);
+        crouton.setCancelled(true);
       }
     }
+
+    // Drops the cleared Croutons from the head of these queues.
+    displayCroutons(targetsToDisplay);
   }
 
-  private void removeCroutonFromViewParent(Crouton crouton) {
+  private static void removeCroutonFromViewParent(Crouton crouton) {
     if (crouton.isShowing()) {
       ViewGroup parent = (ViewGroup) crouton.getView().getParent();
       if (null != parent) {
@@ -406,19 +1651,6 @@ final class Manager extends Handler {
     }
   }
 
-  private void removeAllMessages() {
-    removeMessages(Messages.ADD_CROUTON_TO_VIEW);
-    removeMessages(Messages.DISPLAY_CROUTON);
-    removeMessages(Messages.REMOVE_CROUTON);
-  }
-
-  private void removeAllMessagesForCrouton(Crouton crouton) {
-    removeMessages(Messages.ADD_CROUTON_TO_VIEW, crouton);
-    removeMessages(Messages.DISPLAY_CROUTON, crouton);
-    removeMessages(Messages.REMOVE_CROUTON, crouton);
-
-  }
-
   /**
    * Generates and dispatches an SDK-specific spoken announcement.
    * <p>
@@ -474,7 +1706,12 @@ final class Manager extends Handler {
   @Override
   public String toString() {
     return "Manager{" +
-        "croutonQueue=" + croutonQueue +
+        "scheduler=" + scheduler +
+        ", croutonQueues=" + croutonQueues +
+        ", epoch=" + epoch +
+        ", rateLimit=" + rateLimit +
+        ", queueLimit=" + queueLimit +
+        ", rejectedCroutonCount=" + rejectedCroutonCount +
         '}';
   }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.app.Activity;
+import android.support.v4.util.LruCache;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the heights text {@link Crouton}s have been measured with, so the default animations of a {@link Crouton}
+ * with the same text, {@link Style} and available width don't need its view to be measured ahead of layout.
+ * <p/>
+ * Heights are kept per {@link Activity}, as its theme affects the view, and per {@link ResolvedStyle}, which is
+ * replaced when the configuration its values depend on changes. Must only be used from the main thread.
+ */
+final class MeasuredHeightCache {
+  /** The number of heights that are kept per {@link Activity}. */
+  private static final int MAX_SIZE = 32;
+
+  /** The keys don't refer to their {@link Activity}, so it is released once it is gone. */
+  private static final Map<Activity, LruCache<Key, Integer>> caches =
+      new WeakHashMap<Activity, LruCache<Key, Integer>>();
+
+  private MeasuredHeightCache() {
+    /* no-op */
+  }
+
+  /**
+   * @param activity
+   *   The {@link Activity} of the {@link Crouton}.
+   * @param resolvedStyle
+   *   The {@link ResolvedStyle} of the {@link Crouton}.
+   * @param text
+   *   The text of the {@link Crouton}.
+   * @param availableWidth
+   *   The width the view of the {@link Crouton} is measured within.
+   *
+   * @return The height the view has been measured with or <code>null</code> if it hasn't been measured yet.
+   */
+  static Integer get(Activity activity, ResolvedStyle resolvedStyle, String text, int availableWidth) {
+    final LruCache<Key, Integer> cache = caches.get(activity);
+    return null != cache ? cache.get(new Key(resolvedStyle, text, availableWidth)) : null;
+  }
+
+  /**
+   * @param activity
+   *   The {@link Activity} of the {@link Crouton}.
+   * @param resolvedStyle
+   *   The {@link ResolvedStyle} of the {@link Crouton}.
+   * @param text
+   *   The text of the {@link Crouton}.
+   * @param availableWidth
+   *   The width the view of the {@link Crouton} has been measured within.
+   * @param height
+   *   The height the view has been measured with.
+   */
+  static void put(Activity activity, ResolvedStyle resolvedStyle, String text, int availableWidth, int height) {
+    LruCache<Key, Integer> cache = caches.get(activity);
+    if (null == cache) {
+      cache = new LruCache<Key, Integer>(MAX_SIZE);
+      caches.put(activity, cache);
+    }
+    cache.put(new Key(resolvedStyle, text, availableWidth), height);
+  }
+
+  private static final class Key {
+    private final ResolvedStyle resolvedStyle;
+    private final String text;
+    private final int availableWidth;
+
+    Key(ResolvedStyle resolvedStyle, String text, int availableWidth) {
+      this.resolvedStyle = resolvedStyle;
+      this.text = text;
+      this.availableWidth = availableWidth;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return (resolvedStyle == other.resolvedStyle) && (availableWidth == other.availableWidth)
+          && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(resolvedStyle);
+      result = 31 * result + text.hashCode();
+      result = 31 * result + availableWidth;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.content.Context;
+import android.text.Layout;
+import android.text.TextPaint;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Lays out the text of a {@link Crouton} on the {@link BackgroundExecutor} while the {@link Crouton} is queued, so
+ * the {@link FlatCroutonView} only has to pick up the finished {@link Layout} when it is measured. The default
+ * {@link android.widget.TextView} benefits from the text shaped along the way, which the framework caches.
+ */
+final class PrecomputedTextLayout implements Callable<Layout> {
+  private final Context context;
+  private final CharSequence text;
+  private final String fontName;
+  private final TextPaint textPaint;
+  private final int width;
+  private final Layout.Alignment alignment;
+  private final FutureTask<Layout> task;
+
+  /**
+   * @param context
+   *   The {@link Context} to load the font from.
+   * @param text
+   *   The text to lay out. Must not be modified afterwards.
+   * @param fontName
+   *   The font to apply to the text or <code>null</code>.
+   * @param textPaint
+   *   The {@link TextPaint} to lay out the text with. Must not be used by anything else afterwards.
+   * @param width
+   *   The width the text is expected to be laid out in.
+   * @param alignment
+   *   The alignment of the text.
+   */
+  PrecomputedTextLayout(Context context, CharSequence text, String fontName, TextPaint textPaint, int width,
+                        Layout.Alignment alignment) {
+    this.context = context.getApplicationContext();
+    this.text = text;
+    this.fontName = fontName;
+    this.textPaint = textPaint;
+    this.width = width;
+    this.alignment = alignment;
+    this.task = new FutureTask<Layout>(this);
+  }
+
+  /** Starts laying out the text in the background. */
+  void start() {
+    BackgroundExecutor.get().execute(task);
+  }
+
+  @Override
+  public Layout call() {
+    final CharSequence styledText = (null != fontName) ? TypefaceRegistry.applyTypeface(context, text, fontName) : text;
+    return FlatCroutonView.createTextLayout(styledText, textPaint, width, alignment);
+  }
+
+  /**
+   * Never waits for the background thread.
+   *
+   * @param width
+   *   The width the text has to be laid out in.
+   *
+   * @return The finished {@link Layout} or <code>null</code> if it is not finished yet or has been laid out for a
+   * different width.
+   */
+  Layout getLayout(int width) {
+    if ((width != this.width) || !task.isDone()) {
+      return null;
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+}
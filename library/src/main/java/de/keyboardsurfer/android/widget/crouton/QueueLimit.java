@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Limits the number of {@link Crouton}s waiting to be displayed on a single {@link android.view.ViewGroup} or
+ * {@link android.app.Activity}.
+ * <p/>
+ * The {@link Crouton} currently displayed does not count towards the capacity. The limit is applied via
+ * {@link Crouton#setQueueLimit(QueueLimit)}.
+ *
+ * @since 1.9
+ */
+public class QueueLimit {
+
+  /** What happens when a {@link Crouton} is shown while its queue is full. */
+  public enum Policy {
+    /** The {@link Crouton} that has been waiting the longest is dropped. */
+    DROP_OLDEST,
+    /** The {@link Crouton} that is shown is dropped. */
+    DROP_NEWEST,
+    /**
+     * The waiting {@link Crouton} with the lowest {@link Configuration.Builder#setPriority(int) priority} is dropped.
+     * The {@link Crouton} that is shown is dropped if its priority is not higher than that.
+     */
+    DROP_LOWEST_PRIORITY,
+    /**
+     * The {@link Crouton} that is shown is dropped and counted by a summary {@link Crouton} instead, e.g. "3 more".
+     * The summary is queued beyond the capacity with the {@link Style} of the first dropped {@link Crouton} and the
+     * default {@link Configuration}, and counts all {@link Crouton}s dropped until it is displayed.
+     *
+     * @see Builder#setSummaryFormat(String)
+     */
+    SUMMARIZE
+  }
+
+  /** The default capacity. */
+  public static final int DEFAULT_CAPACITY = 20;
+
+  /** The default format of the text of a summary {@link Crouton}. */
+  public static final String DEFAULT_SUMMARY_FORMAT = "%d more";
+
+  /** The number of {@link Crouton}s that may wait to be displayed on a single target. */
+  final int capacity;
+  /** What happens when a queue is full. */
+  final Policy policy;
+  /** The format of the text of a summary {@link Crouton}, see {@link Policy#SUMMARIZE}. */
+  final String summaryFormat;
+
+  private QueueLimit(Builder builder) {
+    this.capacity = builder.capacity;
+    this.policy = builder.policy;
+    this.summaryFormat = builder.summaryFormat;
+  }
+
+  /** Creates a {@link Builder} to build a {@link QueueLimit} upon. */
+  public static class Builder {
+    private int capacity = DEFAULT_CAPACITY;
+    private Policy policy = Policy.DROP_OLDEST;
+    private String summaryFormat = DEFAULT_SUMMARY_FORMAT;
+
+    /**
+     * Set the number of {@link Crouton}s that may wait to be displayed on a single target.
+     *
+     * @param capacity
+     *   The capacity.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setCapacity(final int capacity) {
+      if (capacity <= 0) {
+        throw new IllegalArgumentException("The capacity has to be positive");
+      }
+      this.capacity = capacity;
+
+      return this;
+    }
+
+    /**
+     * Set what happens when a {@link Crouton} is shown while its queue is full.
+     *
+     * @param policy
+     *   The {@link Policy}.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setPolicy(final Policy policy) {
+      if (null == policy) {
+        throw new IllegalArgumentException("Null parameters are not accepted");
+      }
+      this.policy = policy;
+
+      return this;
+    }
+
+    /**
+     * Set the format of the text of a summary {@link Crouton} for {@link Policy#SUMMARIZE}.
+     *
+     * @param summaryFormat
+     *   A {@link String#format(String, Object...) format} with a single <code>%d</code> for the number of dropped
+     *   {@link Crouton}s.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setSummaryFormat(final String summaryFormat) {
+      if (null == summaryFormat) {
+        throw new IllegalArgumentException("Null parameters are not accepted");
+      }
+      this.summaryFormat = summaryFormat;
+
+      return this;
+    }
+
+    /**
+     * Builds the {@link QueueLimit}.
+     *
+     * @return The built {@link QueueLimit}.
+     */
+    public QueueLimit build() {
+      return new QueueLimit(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "QueueLimit{" +
+      "capacity=" + capacity +
+      ", policy=" + policy +
+      ", summaryFormat=" + summaryFormat +
+      '}';
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Limits the rate at which {@link Crouton}s are accepted by {@link Crouton#show()}.
+ * <p/>
+ * The limit is a token bucket: on average one {@link Crouton} per interval is accepted, with bursts of up to
+ * the burst size. It is applied via {@link Crouton#setRateLimit(RateLimit)}.
+ *
+ * @since 1.9
+ */
+public class RateLimit {
+
+  /** What happens to {@link Crouton}s exceeding the {@link RateLimit}. */
+  public enum Policy {
+    /** The {@link Crouton} is dropped. */
+    DROP,
+    /**
+     * The {@link Crouton} is merged into the most recently queued or displayed {@link Crouton} of the same target,
+     * incrementing its {@link Crouton#getRepeatCount() repeat count}. It is dropped if there is none.
+     */
+    COALESCE,
+    /**
+     * The {@link Crouton} is queued right away, but not displayed before the {@link RateLimit} allows it. Clearing or
+     * cancelling it before then returns its token.
+     */
+    DEFER
+  }
+
+  /** The default interval in milliseconds. */
+  public static final int DEFAULT_INTERVAL = 1000;
+  /** The default burst size. */
+  public static final int DEFAULT_BURST_SIZE = 5;
+
+  /** The average interval between two accepted {@link Crouton}s in milliseconds. */
+  final int intervalInMilliseconds;
+  /** The number of {@link Crouton}s that are accepted at once. */
+  final int burstSize;
+  /** What happens to {@link Crouton}s exceeding the limit. */
+  final Policy policy;
+  /** Whether the limit applies to each display target separately or to all {@link Crouton}s. */
+  final boolean isPerTarget;
+
+  private RateLimit(Builder builder) {
+    this.intervalInMilliseconds = builder.intervalInMilliseconds;
+    this.burstSize = builder.burstSize;
+    this.policy = builder.policy;
+    this.isPerTarget = builder.isPerTarget;
+  }
+
+  /** Creates a {@link Builder} to build a {@link RateLimit} upon. */
+  public static class Builder {
+    private int intervalInMilliseconds = DEFAULT_INTERVAL;
+    private int burstSize = DEFAULT_BURST_SIZE;
+    private Policy policy = Policy.DROP;
+    private boolean isPerTarget = false;
+
+    /**
+     * Set the average interval between two accepted {@link Crouton}s.
+     *
+     * @param intervalInMilliseconds
+     *   The interval in milliseconds.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setInterval(final int intervalInMilliseconds) {
+      if (intervalInMilliseconds <= 0) {
+        throw new IllegalArgumentException("The interval has to be positive");
+      }
+      this.intervalInMilliseconds = intervalInMilliseconds;
+
+      return this;
+    }
+
+    /**
+     * Set the number of {@link Crouton}s that are accepted at once.
+     *
+     * @param burstSize
+     *   The burst size.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setBurstSize(final int burstSize) {
+      if (burstSize <= 0) {
+        throw new IllegalArgumentException("The burst size has to be positive");
+      }
+      this.burstSize = burstSize;
+
+      return this;
+    }
+
+    /**
+     * Set what happens to {@link Crouton}s exceeding the limit.
+     *
+     * @param policy
+     *   The {@link Policy}.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setPolicy(final Policy policy) {
+      if (null == policy) {
+        throw new IllegalArgumentException("Null parameters are not accepted");
+      }
+      this.policy = policy;
+
+      return this;
+    }
+
+    /**
+     * Set whether the limit applies to each display target separately.
+     *
+     * @param isPerTarget
+     *   <code>true</code> to limit each {@link android.view.ViewGroup} or {@link android.app.Activity} separately,
+     *   <code>false</code> to limit all {@link Crouton}s together.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setPerTarget(final boolean isPerTarget) {
+      this.isPerTarget = isPerTarget;
+
+      return this;
+    }
+
+    /**
+     * Builds the {@link RateLimit}.
+     *
+     * @return The built {@link RateLimit}.
+     */
+    public RateLimit build() {
+      return new RateLimit(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimit{" +
+      "intervalInMilliseconds=" + intervalInMilliseconds +
+      ", burstSize=" + burstSize +
+      ", policy=" + policy +
+      ", isPerTarget=" + isPerTarget +
+      '}';
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.view.ViewGroup.LayoutParams;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The dimensions, colors, font name and image width of a {@link Style} with all resource ids looked up, so
+ * {@link Crouton}s with the same {@link Style} don't have to look them up again.
+ * <p/>
+ * Resolved values are kept per {@link Style} until the display density, locale, ui mode or font scale of the
+ * {@link Resources} they are resolved with changes. Must only be used from the main thread.
+ */
+final class ResolvedStyle {
+  /** Styles don't override equals(), so they are looked up by identity and dropped along with the Style. */
+  private static final Map<Style, ResolvedStyle> cache = new WeakHashMap<Style, ResolvedStyle>();
+
+  private final float density;
+  private final Locale locale;
+  private final int uiMode;
+  private final float fontScale;
+
+  /** The height of the crouton view in pixels or a {@link LayoutParams} constant. */
+  final int height;
+
+  /** The width of the crouton view in pixels or a {@link LayoutParams} constant. */
+  final int width;
+
+  /** The padding of the crouton view content in pixels. */
+  final int padding;
+
+  /** The background color. */
+  final int backgroundColor;
+
+  /** Whether the {@link Style} sets a text color. */
+  final boolean hasTextColor;
+
+  /** The text color, if {@link #hasTextColor}. */
+  final int textColor;
+
+  /** Whether the {@link Style} sets a text shadow. */
+  final boolean hasTextShadow;
+
+  /** The text shadow color, if {@link #hasTextShadow}. */
+  final int textShadowColor;
+
+  /** The file path and font name or <code>null</code>. */
+  final String fontName;
+
+  /** The intrinsic width of the image, looked up on first use. */
+  private int imageWidth = NOT_LOOKED_UP;
+  private static final int NOT_LOOKED_UP = -1;
+
+  private ResolvedStyle(Resources resources, Style style) {
+    final Configuration configuration = resources.getConfiguration();
+    density = resources.getDisplayMetrics().density;
+    locale = configuration.locale;
+    uiMode = configuration.uiMode;
+    fontScale = configuration.fontScale;
+
+    if (style.heightDimensionResId > 0) {
+      height = resources.getDimensionPixelSize(style.heightDimensionResId);
+    } else {
+      height = style.heightInPixels;
+    }
+
+    final int widthInPixels;
+    if (style.widthDimensionResId > 0) {
+      widthInPixels = resources.getDimensionPixelSize(style.widthDimensionResId);
+    } else {
+      widthInPixels = style.widthInPixels;
+    }
+    width = widthInPixels != 0 ? widthInPixels : LayoutParams.MATCH_PARENT;
+
+    // if a padding dimension has been set, this will overwrite any padding
+    // in pixels
+    if (style.paddingDimensionResId > 0) {
+      padding = resources.getDimensionPixelSize(style.paddingDimensionResId);
+    } else {
+      padding = style.paddingInPixels;
+    }
+
+    if (style.backgroundColorValue != Style.NOT_SET) {
+      backgroundColor = style.backgroundColorValue;
+    } else {
+      backgroundColor = resources.getColor(style.backgroundColorResourceId);
+    }
+
+    if (style.textColorValue != Style.NOT_SET) {
+      hasTextColor = true;
+      textColor = style.textColorValue;
+    } else if (style.textColorResourceId != 0) {
+      hasTextColor = true;
+      textColor = resources.getColor(style.textColorResourceId);
+    } else {
+      hasTextColor = false;
+      textColor = 0;
+    }
+
+    hasTextShadow = style.textShadowColorResId != 0;
+    textShadowColor = hasTextShadow ? resources.getColor(style.textShadowColorResId) : 0;
+
+    if (style.fontName != null) {
+      fontName = style.fontName;
+    } else if (style.fontNameResId != 0) {
+      fontName = resources.getString(style.fontNameResId);
+    } else {
+      fontName = null;
+    }
+  }
+
+  /**
+   * @param resources
+   *   The {@link Resources} to look up the resource ids of the {@link Style} with.
+   * @param style
+   *   The {@link Style} to resolve.
+   *
+   * @return The resolved values of the {@link Style}.
+   */
+  static ResolvedStyle get(Resources resources, Style style) {
+    ResolvedStyle resolvedStyle = cache.get(style);
+    if ((null == resolvedStyle) || !resolvedStyle.isResolvedWith(resources)) {
+      resolvedStyle = new ResolvedStyle(resources, style);
+      cache.put(style, resolvedStyle);
+    }
+    return resolvedStyle;
+  }
+
+  /**
+   * @param resources
+   *   The {@link Resources} the {@link Style} has been resolved with.
+   * @param style
+   *   The resolved {@link Style}.
+   *
+   * @return The intrinsic width of the image of the {@link Style} or 0 if it has none.
+   */
+  int getImageWidth(Resources resources, Style style) {
+    if (NOT_LOOKED_UP == imageWidth) {
+      // the image resource overrides the drawable if both are set
+      final Drawable image = (0 != style.imageResId) ? resources.getDrawable(style.imageResId) : style.imageDrawable;
+      imageWidth = (null != image) ? Math.max(0, image.getIntrinsicWidth()) : 0;
+    }
+    return imageWidth;
+  }
+
+  private boolean isResolvedWith(Resources resources) {
+    final Configuration configuration = resources.getConfiguration();
+    return (density == resources.getDisplayMetrics().density) && (uiMode == configuration.uiMode)
+        && (fontScale == configuration.fontScale)
+        && ((null != locale) ? locale.equals(configuration.locale) : (null == configuration.locale));
+  }
+
+  @Override
+  public String toString() {
+    return "ResolvedStyle{" +
+      "density=" + density +
+      ", locale=" + locale +
+      ", uiMode=" + uiMode +
+      ", fontScale=" + fontScale +
+      ", height=" + height +
+      ", width=" + width +
+      ", padding=" + padding +
+      ", backgroundColor=" + backgroundColor +
+      ", hasTextColor=" + hasTextColor +
+      ", textColor=" + textColor +
+      ", hasTextShadow=" + hasTextShadow +
+      ", textShadowColor=" + textShadowColor +
+      ", fontName=" + fontName +
+      '}';
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Runs the delayed actions of the {@link Manager} and provides the clock they are scheduled by.
+ * <p/>
+ * The default is backed by a {@link android.os.Handler} of the main thread. A {@link VirtualTimeScheduler} runs
+ * the {@link Manager} in virtual time instead, so hours of {@link Crouton} traffic can be simulated on the JVM.
+ */
+interface Scheduler {
+
+  /** An action that is run whenever the scheduler thread has nothing else to do. */
+  interface IdleAction {
+    /**
+     * @return <code>true</code> to be run again the next time the scheduler thread is idle, <code>false</code> to be
+     * dropped.
+     */
+    boolean runWhenIdle();
+  }
+
+  /**
+   * @return The current time of this {@link Scheduler}'s clock in milliseconds.
+   */
+  long uptimeMillis();
+
+  /**
+   * @return <code>true</code> if called on the thread the actions are run on.
+   */
+  boolean isSchedulerThread();
+
+  /**
+   * Runs an action on the scheduler thread once the delay has passed. Can be called from any thread.
+   *
+   * @param action
+   *   The action to run.
+   * @param delayInMilliseconds
+   *   The delay in milliseconds.
+   */
+  void schedule(Runnable action, long delayInMilliseconds);
+
+  /**
+   * Runs an action whenever the scheduler thread is idle, until it asks to be dropped. Must be called on the
+   * scheduler thread.
+   *
+   * @param action
+   *   The action to run.
+   */
+  void scheduleWhenIdle(IdleAction action);
+
+  /**
+   * Runs an action at the beginning of the next frame, before the views are laid out and drawn. Must be called on the
+   * scheduler thread.
+   *
+   * @param action
+   *   The action to run.
+   *
+   * @return <code>true</code> if the action has been scheduled, <code>false</code> if frames can't be observed.
+   */
+  boolean scheduleOnNextFrame(Runnable action);
+}
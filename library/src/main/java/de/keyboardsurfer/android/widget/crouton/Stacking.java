@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+/**
+ * Displays several {@link Crouton}s of a single {@link android.view.ViewGroup} or {@link android.app.Activity} at
+ * once, stacked on top of each other.
+ * <p/>
+ * Each {@link Crouton} in the stack is removed after its own duration and the others move up or down to close the
+ * gap. It is applied via {@link Crouton#setStacking(android.app.Activity, Stacking)} or
+ * {@link Crouton#setStacking(android.view.ViewGroup, Stacking)}.
+ *
+ * @since 1.9
+ */
+public class Stacking {
+
+  /** The default number of {@link Crouton}s that are visible at once. */
+  public static final int DEFAULT_MAX_VISIBLE = 3;
+
+  /** The number of {@link Crouton}s that are visible at once. */
+  final int maxVisible;
+  /** Whether new {@link Crouton}s are added above the visible ones or below them. */
+  final boolean isNewestOnTop;
+
+  private Stacking(Builder builder) {
+    this.maxVisible = builder.maxVisible;
+    this.isNewestOnTop = builder.isNewestOnTop;
+  }
+
+  /** Creates a {@link Builder} to build a {@link Stacking} upon. */
+  public static class Builder {
+    private int maxVisible = DEFAULT_MAX_VISIBLE;
+    private boolean isNewestOnTop = true;
+
+    /**
+     * Set the number of {@link Crouton}s that are visible at once.
+     *
+     * @param maxVisible
+     *   The number of {@link Crouton}s.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setMaxVisible(final int maxVisible) {
+      if (maxVisible <= 0) {
+        throw new IllegalArgumentException("The number of visible Croutons has to be positive");
+      }
+      this.maxVisible = maxVisible;
+
+      return this;
+    }
+
+    /**
+     * Set where new {@link Crouton}s are added to the stack.
+     *
+     * @param isNewestOnTop
+     *   <code>true</code> to add new {@link Crouton}s above the visible ones, <code>false</code> to add them below.
+     *
+     * @return the {@link Builder}.
+     */
+    public Builder setNewestOnTop(final boolean isNewestOnTop) {
+      this.isNewestOnTop = isNewestOnTop;
+
+      return this;
+    }
+
+    /**
+     * Builds the {@link Stacking}.
+     *
+     * @return The built {@link Stacking}.
+     */
+    public Stacking build() {
+      return new Stacking(this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Stacking{" +
+      "maxVisible=" + maxVisible +
+      ", isNewestOnTop=" + isNewestOnTop +
+      '}';
+  }
+}
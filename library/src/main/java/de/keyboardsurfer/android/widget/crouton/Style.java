@@ -152,6 +152,9 @@ public class Style {
   /** The file path and font name resource id for the view content */
   final int fontNameResId;
 
+  /** Whether the crouton view is drawn by a single flat view instead of a view hierarchy. */
+  final boolean isFlatRenderingEnabled;
+
   private Style(final Builder builder) {
     this.configuration = builder.configuration;
     this.backgroundColorResourceId = builder.backgroundColorResourceId;
@@ -178,6 +181,7 @@ public class Style {
     this.backgroundColorValue = builder.backgroundColorValue;
     this.fontName = builder.fontName;
     this.fontNameResId = builder.fontNameResId;
+    this.isFlatRenderingEnabled = builder.isFlatRenderingEnabled;
   }
 
   /** Builder for the {@link Style} object. */
@@ -207,6 +211,7 @@ public class Style {
     private int paddingDimensionResId;
     private String fontName;
     private int fontNameResId;
+    private boolean isFlatRenderingEnabled;
 
     /** Creates a {@link Builder} to build a {@link Style} upon. */
     public Builder() {
@@ -226,6 +231,7 @@ public class Style {
       imageScaleType = ImageView.ScaleType.FIT_XY;
       fontName = null;
       fontNameResId = 0;
+      isFlatRenderingEnabled = false;
     }
 
     /**
@@ -260,6 +266,7 @@ public class Style {
       paddingDimensionResId = baseStyle.paddingDimensionResId;
       fontName = baseStyle.fontName;
       fontNameResId = baseStyle.fontNameResId;
+      isFlatRenderingEnabled = baseStyle.isFlatRenderingEnabled;
     }
     /**
      * Set the {@link Configuration} option of the {@link Crouton}.
@@ -525,6 +532,24 @@ public class Style {
       return this;
     }
 
+    /**
+     * Set whether the {@link Crouton} is drawn by a single flat view, which lays out its background, image and text
+     * itself instead of inflating a {@link android.widget.FrameLayout}, a {@link android.widget.RelativeLayout}, an
+     * {@link ImageView} and a {@link android.widget.TextView}.
+     *
+     * @param isFlatRenderingEnabled
+     *   <code>true</code> if the {@link Crouton} should be drawn by a single view, else <code>false</code>.
+     *
+     * @return the {@link Builder}.
+     *
+     * @since 1.9
+     */
+    public Builder setFlatRendering(boolean isFlatRenderingEnabled) {
+      this.isFlatRenderingEnabled = isFlatRenderingEnabled;
+
+      return this;
+    }
+
     /** @return a configured {@link Style} object. */
     public Style build() {
       return new Style(this);
@@ -559,6 +584,7 @@ public class Style {
       ", paddingDimensionResId=" + paddingDimensionResId +
       ", fontName=" + fontName +
       ", fontNameResId=" + fontNameResId +
+      ", isFlatRenderingEnabled=" + isFlatRenderingEnabled +
       '}';
   }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.keyboardsurfer.android.widget.crouton;
+
+/** The token bucket enforcing a {@link RateLimit}. */
+final class TokenBucket {
+  private final RateLimit rateLimit;
+  private double tokens;
+  private long lastRefillTime;
+
+  TokenBucket(RateLimit rateLimit, long now) {
+    this.rateLimit = rateLimit;
+    this.tokens = rateLimit.burstSize;
+    this.lastRefillTime = now;
+  }
+
+  /**
+   * @param now
+   *   The current time in milliseconds.
+   *
+   * @return <code>true</code> if a token has been taken, <code>false</code> if none is available.
+   */
+  boolean tryAcquire(long now) {
+    refill(now);
+    if (tokens < 1) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  /**
+   * Takes the next token, even if it will only become available in the future.
+   *
+   * @param now
+   *   The current time in milliseconds.
+   *
+   * @return The time in milliseconds until the reserved token becomes available.
+   */
+  long reserve(long now) {
+    refill(now);
+    tokens--;
+    if (tokens >= 0) {
+      return 0;
+    }
+    return (long) Math.ceil(-tokens * rateLimit.intervalInMilliseconds);
+  }
+
+  /**
+   * Returns a token that has been reserved but is not needed any more.
+   *
+   * @param now
+   *   The current time in milliseconds.
+   */
+  void refund(long now) {
+    refill(now);
+    tokens = Math.min(rateLimit.burstSize, tokens + 1);
+  }
+
+  /**
+   * Returns all tokens that have been reserved for the future at once, e.g. because all {@link Crouton}s waiting for
+   * them have been cleared.
+   *
+   * @param now
+   *   The current time in milliseconds.
+   */
+  void refundAll(long now) {
+    refill(now);
+    if (tokens < 0) {
+      // Each reservation that hasn't become available yet accounts for one token of the deficit.
+      tokens -= Math.floor(tokens);
+    }
+  }
+
+  private void refill(long now) {
+    if (now > lastRefillTime) {
+      tokens = Math.min(rateLimit.burstSize,
+          tokens + (double) (now - lastRefillTime) / rateLimit.intervalInMilliseconds);
+      lastRefillTime = now;
+    }
+  }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.text.Spannable;
+import android.text.SpannableString;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps the custom fonts of {@link Style}s loaded, each with one {@link TypefaceSpan} that is shared by all
+ * {@link Crouton}s using the font.
+ * <p/>
+ * Fonts are loaded on a background thread when they are preloaded or a {@link Crouton} using them is queued, and only
+ * on the main thread if they are still missing when a {@link Crouton} is displayed.
+ *
+ * @since 1.9
+ */
+public final class TypefaceRegistry {
+  /** The number of fonts kept loaded by default. */
+  public static final int DEFAULT_SIZE = 5;
+
+  /** The directory within the files directory of the app that fonts are extracted to. */
+  private static final String FONT_DIRECTORY = "crouton-fonts";
+
+  /** Guards {@link #spans} and {@link #loads}. */
+  private static final Object lock = new Object();
+
+  private static LruCache<String, TypefaceSpan> spans = new LruCache<String, TypefaceSpan>(DEFAULT_SIZE);
+
+  /** The fonts that are being loaded right now, so a font requested by several threads at once is loaded once. */
+  private static final Map<String, FutureTask<TypefaceSpan>> loads = new HashMap<String, FutureTask<TypefaceSpan>>();
+
+  private static volatile boolean isFileLoadingEnabled;
+
+  private TypefaceRegistry() {
+    /* no-op */
+  }
+
+  /**
+   * Sets the number of fonts that are kept loaded. Fonts that have been loaded already are kept, up to the new size.
+   *
+   * @param size
+   *   The number of fonts to keep loaded.
+   */
+  public static void setSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be at least 1");
+    }
+
+    synchronized (lock) {
+      final LruCache<String, TypefaceSpan> resized = new LruCache<String, TypefaceSpan>(size);
+      for (Map.Entry<String, TypefaceSpan> entry : spans.snapshot().entrySet()) {
+        resized.put(entry.getKey(), entry.getValue());
+      }
+      spans = resized;
+    }
+  }
+
+  /**
+   * Sets whether fonts are extracted from the assets to the files directory of the app once and loaded from there.
+   * <p/>
+   * A font loaded from the assets is copied to memory as a whole for each process, while a font loaded from a file
+   * is mapped into memory and only read as far as it is used, which matters for large fonts. Fonts that can't be
+   * extracted are loaded from the assets as before. Fonts that have been loaded already are not reloaded.
+   * <p/>
+   * Fonts are only extracted when they are preloaded on the background thread. A font that is needed on the main
+   * thread before that is loaded from the assets.
+   *
+   * @param isFileLoadingEnabled
+   *   <code>true</code> if fonts should be loaded from extracted files, else <code>false</code>.
+   */
+  public static void setFileLoadingEnabled(boolean isFileLoadingEnabled) {
+    TypefaceRegistry.isFileLoadingEnabled = isFileLoadingEnabled;
+  }
+
+  /**
+   * Loads fonts on a background thread, so {@link Crouton}s using them don't have to wait for them.
+   *
+   * @param context
+   *   A {@link Context} to load the fonts from the assets of.
+   * @param fontNames
+   *   The file paths and names of the fonts within the assets, as used for {@link Style.Builder#setFontName(String)}.
+   */
+  public static void preload(Context context, final String... fontNames) {
+    final Context applicationContext = context.getApplicationContext();
+    BackgroundExecutor.get().execute(new Runnable() {
+      @Override
+      public void run() {
+        for (String fontName : fontNames) {
+          getSpan(applicationContext, fontName, true);
+        }
+      }
+    });
+  }
+
+  /**
+   * Loads a font on a background thread unless it is loaded already.
+   *
+   * @param context
+   *   A {@link Context} to load the font from the assets of.
+   * @param fontName
+   *   The file path and name of the font within the assets.
+   */
+  static void preloadIfMissing(Context context, String fontName) {
+    synchronized (lock) {
+      if ((null != spans.get(fontName)) || loads.containsKey(fontName)) {
+        return;
+      }
+    }
+    preload(context, fontName);
+  }
+
+  /**
+   * Can be called from any thread.
+   *
+   * @param context
+   *   A {@link Context} to load the font from the assets of.
+   * @param fontName
+   *   The file path and name of the font within the assets.
+   *
+   * @return The shared {@link TypefaceSpan} of the font, which is loaded right away if it isn't loaded yet. If another
+   * thread is loading it already, that load is waited for, except on the main thread.
+   */
+  static TypefaceSpan getSpan(Context context, String fontName) {
+    return getSpan(context, fontName, false);
+  }
+
+  private static TypefaceSpan getSpan(final Context context, final String fontName, final boolean isPreload) {
+    FutureTask<TypefaceSpan> load;
+    final boolean isLoader;
+    synchronized (lock) {
+      final TypefaceSpan span = spans.get(fontName);
+      if (null != span) {
+        return span;
+      }
+      load = loads.get(fontName);
+      isLoader = (null == load);
+      if (isLoader) {
+        load = new FutureTask<TypefaceSpan>(new Callable<TypefaceSpan>() {
+          @Override
+          public TypefaceSpan call() {
+            final TypefaceSpan span = new TypefaceSpan(loadTypeface(context, fontName, isPreload));
+            synchronized (lock) {
+              // Goes into the current cache, even if it has been resized in the meantime.
+              spans.put(fontName, span);
+            }
+            return span;
+          }
+        });
+        loads.put(fontName, load);
+      }
+    }
+
+    if (!isLoader && !isPreload && (Looper.myLooper() == Looper.getMainLooper())) {
+      // The main thread doesn't wait for a preload, which might be extracting a large font.
+      return new TypefaceSpan(loadTypeface(context, fontName, false));
+    }
+    if (isLoader) {
+      try {
+        load.run();
+      } finally {
+        synchronized (lock) {
+          loads.remove(fontName);
+        }
+      }
+    }
+    try {
+      return load.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new TypefaceSpan(loadTypeface(context, fontName, false));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Can be called from any thread.
+   *
+   * @param context
+   *   A {@link Context} to load the font from the assets of.
+   * @param fontName
+   *   The file path and name of the font within the assets.
+   *
+   * @return The {@link Typeface} of the font, which is loaded right away if it isn't loaded yet.
+   */
+  static Typeface getTypeface(Context context, String fontName) {
+    return getSpan(context, fontName).getTypeface();
+  }
+
+  /**
+   * @param context
+   *   A {@link Context} to load the font from the assets of.
+   * @param text
+   *   The text to apply the font to.
+   * @param fontName
+   *   The file path and name of the font within the assets.
+   *
+   * @return The text spanned with the shared {@link TypefaceSpan} of the font.
+   */
+  static CharSequence applyTypeface(Context context, CharSequence text, String fontName) {
+    final SpannableString s = new SpannableString(text);
+    s.setSpan(getSpan(context, fontName), 0, s.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    return s;
+  }
+
+  /**
+   * @param isExtractionAllowed
+   *   <code>true</code> on the background thread of a preload, which may extract the font, else <code>false</code>.
+   */
+  private static Typeface loadTypeface(Context context, String fontName, boolean isExtractionAllowed) {
+    final Context applicationContext = context.getApplicationContext();
+    if (isFileLoadingEnabled && isExtractionAllowed) {
+      try {
+        return Typeface.createFromFile(extractFont(applicationContext, fontName));
+      } catch (IOException e) {
+        // The font is loaded from the assets instead.
+      } catch (RuntimeException e) {
+        // The font is loaded from the assets instead.
+      }
+    }
+    return Typeface.createFromAsset(applicationContext.getAssets(), fontName);
+  }
+
+  /**
+   * Copies a font from the assets to the files directory, unless that has been done for the installed version of the
+   * app already. The fonts of previous installations are deleted.
+   *
+   * @return The extracted font file.
+   */
+  private static synchronized File extractFont(Context context, String fontName) throws IOException {
+    final File fontDirectory = new File(context.getFilesDir(), FONT_DIRECTORY);
+    final File versionDirectory = new File(fontDirectory, getInstallationName(context));
+    final File fontFile = new File(versionDirectory, fontName);
+    if (fontFile.isFile()) {
+      return fontFile;
+    }
+
+    if (!versionDirectory.isDirectory()) {
+      deleteRecursively(fontDirectory);
+    }
+    final File parent = fontFile.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create " + parent);
+    }
+
+    // Copied to a temporary file first, so a partially written font is never loaded.
+    final File temporaryFile = new File(parent, fontFile.getName() + ".tmp");
+    final InputStream in = context.getAssets().open(fontName);
+    try {
+      final OutputStream out = new FileOutputStream(temporaryFile);
+      try {
+        final byte[] buffer = new byte[8192];
+        int count;
+        while (-1 != (count = in.read(buffer))) {
+          out.write(buffer, 0, count);
+        }
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+    if (!temporaryFile.renameTo(fontFile)) {
+      temporaryFile.delete();
+      throw new IOException("Cannot create " + fontFile);
+    }
+    return fontFile;
+  }
+
+  /**
+   * @return A name that changes whenever the app is updated, even if its version code stays the same, e.g. while it is
+   * developed.
+   */
+  private static String getInstallationName(Context context) {
+    try {
+      final PackageInfo packageInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+      return packageInfo.versionCode + "-" + getLastUpdateTime(context, packageInfo);
+    } catch (PackageManager.NameNotFoundException e) {
+      return "0";
+    }
+  }
+
+  @TargetApi(9)
+  private static long getLastUpdateTime(Context context, PackageInfo packageInfo) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+      return packageInfo.lastUpdateTime;
+    }
+    // The APK is replaced on each update.
+    return new File(context.getApplicationInfo().sourceDir).lastModified();
+  }
+
+  private static void deleteRecursively(File file) {
+    final File[] children = file.listFiles();
+    if (null != children) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
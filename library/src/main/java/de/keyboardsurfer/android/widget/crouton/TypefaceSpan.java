@@ -19,7 +19,6 @@ package de.keyboardsurfer.android.widget.crouton;
 
 import android.content.Context;
 import android.graphics.Typeface;
-import android.support.v4.util.LruCache;
 import android.text.TextPaint;
 import android.text.style.MetricAffectingSpan;
 
@@ -27,24 +26,25 @@ import android.text.style.MetricAffectingSpan;
  * Style a spannable with a custom {@link Typeface}.
  */
 public class TypefaceSpan extends MetricAffectingSpan {
-  /** An <code>LruCache</code> for previously loaded typefaces. */
-  private static LruCache<String, Typeface> sTypefaceCache = new LruCache<String, Typeface>(5);
-
-  private Typeface mTypeface;
+  private final Typeface mTypeface;
 
   /**
    * Load the {@link Typeface} and apply to a spannable.
+   * <p/>
+   * The {@link Typeface} is kept loaded by the {@link TypefaceRegistry}.
    */
   public TypefaceSpan(Context context, String typefaceName) {
-    mTypeface = sTypefaceCache.get(typefaceName);
+    this(TypefaceRegistry.getTypeface(context, typefaceName));
+  }
 
-    if (mTypeface == null) {
-      mTypeface = Typeface.createFromAsset(context.getApplicationContext()
-          .getAssets(), String.format("%s", typefaceName));
+  /** Apply a loaded {@link Typeface} to a spannable. */
+  TypefaceSpan(Typeface typeface) {
+    mTypeface = typeface;
+  }
 
-      // Cache the loaded Typeface
-      sTypefaceCache.put(typefaceName, mTypeface);
-    }
+  /** @return The {@link Typeface} applied by this span. */
+  Typeface getTypeface() {
+    return mTypeface;
   }
 
   @Override
@@ -56,4 +56,4 @@ public class TypefaceSpan extends MetricAffectingSpan {
   public void updateDrawState(TextPaint tp) {
     tp.setTypeface(mTypeface);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+
+import android.view.View;
+
+/**
+ * Binds the data of a {@link Crouton} to its custom view once the view has been inflated from its layout resource.
+ *
+ * @since 1.9
+ */
+public interface ViewBinder {
+  /**
+   * Will be called on the main thread before the {@link Crouton} is displayed.
+   *
+   * @param view
+   *   The view that has been inflated from the layout resource of the {@link Crouton}.
+   */
+  public void bindView(View view);
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012 - 2014 Benjamin Weiss
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.keyboardsurfer.android.widget.crouton;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * A {@link Scheduler} with a virtual clock that only advances when told to.
+ * <p/>
+ * Actions are run on the thread calling {@link #advanceBy(long)} or {@link #runUntilIdle()}, in order of their due
+ * time and, for equal due times, in order of scheduling. Idle actions are run whenever the clock is about to jump
+ * ahead to the next due action, frames start every {@link #FRAME_INTERVAL} milliseconds. It doesn't depend on the
+ * Android framework, so the queueing of a {@link Manager} can be simulated on the JVM far faster than real time.
+ */
+final class VirtualTimeScheduler implements Scheduler {
+  /** The time between two virtual frames in milliseconds. */
+  static final long FRAME_INTERVAL = 16;
+
+  private static final class Task {
+    final long dueTime;
+    final long sequenceNumber;
+    final Runnable action;
+
+    Task(long dueTime, long sequenceNumber, Runnable action) {
+      this.dueTime = dueTime;
+      this.sequenceNumber = sequenceNumber;
+      this.action = action;
+    }
+  }
+
+  private static final Comparator<Task> DUE_ORDER = new Comparator<Task>() {
+    @Override
+    public int compare(Task lhs, Task rhs) {
+      if (lhs.dueTime != rhs.dueTime) {
+        return lhs.dueTime < rhs.dueTime ? -1 : 1;
+      }
+      return lhs.sequenceNumber < rhs.sequenceNumber ? -1 : (lhs.sequenceNumber == rhs.sequenceNumber ? 0 : 1);
+    }
+  };
+
+  private final Queue<Task> tasks = new PriorityQueue<Task>(11, DUE_ORDER);
+  private final List<IdleAction> idleActions = new ArrayList<IdleAction>();
+  private long now;
+  private long sequenceNumber;
+
+  @Override
+  public synchronized long uptimeMillis() {
+    return now;
+  }
+
+  /**
+   * All actions are run on the thread that advances the clock, so every caller is considered to be on it.
+   */
+  @Override
+  public boolean isSchedulerThread() {
+    return true;
+  }
+
+  @Override
+  public synchronized void schedule(Runnable action, long delayInMilliseconds) {
+    tasks.add(new Task(now + Math.max(0, delayInMilliseconds), sequenceNumber++, action));
+  }
+
+  @Override
+  public synchronized void scheduleWhenIdle(IdleAction action) {
+    idleActions.add(action);
+  }
+
+  @Override
+  public synchronized boolean scheduleOnNextFrame(Runnable action) {
+    schedule(action, FRAME_INTERVAL - (now % FRAME_INTERVAL));
+    return true;
+  }
+
+  /**
+   * Advances the clock, running every action that becomes due on the way, including the ones scheduled by them.
+   *
+   * @param durationInMilliseconds
+   *   The duration to advance the clock by.
+   */
+  void advanceBy(long durationInMilliseconds) {
+    final long endTime;
+    synchronized (this) {
+      endTime = now + durationInMilliseconds;
+    }
+    while (runNextTask(endTime)) {
+      // keep going
+    }
+    synchronized (this) {
+      now = Math.max(now, endTime);
+    }
+  }
+
+  /**
+   * Advances the clock until no more actions are scheduled.
+   */
+  void runUntilIdle() {
+    while (runNextTask(Long.MAX_VALUE)) {
+      // keep going
+    }
+  }
+
+  /**
+   * @return The number of actions that have not been run yet.
+   */
+  synchronized int getScheduledCount() {
+    return tasks.size();
+  }
+
+  private boolean runNextTask(long endTime) {
+    Task task;
+    synchronized (this) {
+      task = tasks.peek();
+    }
+    if ((null == task) || (task.dueTime > uptimeMillis())) {
+      runIdleActions();
+    }
+    synchronized (this) {
+      task = tasks.peek();
+      if ((null == task) || (task.dueTime > endTime)) {
+        return false;
+      }
+      tasks.poll();
+      now = task.dueTime;
+    }
+    task.action.run();
+    return true;
+  }
+
+  private void runIdleActions() {
+    final List<IdleAction> actions;
+    synchronized (this) {
+      actions = new ArrayList<IdleAction>(idleActions);
+      idleActions.clear();
+    }
+    for (IdleAction action : actions) {
+      if (action.runWhenIdle()) {
+        scheduleWhenIdle(action);
+      }
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "VirtualTimeScheduler{" +
+      "now=" + now +
+      ", scheduledCount=" + tasks.size() +
+      '}';
+  }
+}